@@ -0,0 +1,129 @@
+package com.edig.searchengine.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the observed latency, after the gradient algorithm of Netflix's
+ * concurrency-limits.
+ * <p>
+ * The lowest latency observed stands for the latency without queueing, and a short-term average of the
+ * latencies for the current one. Their ratio is the gradient: while the current latency stays within
+ * {@code TOLERANCE} times the unloaded one the limit grows by a small queue allowance, and as soon as
+ * requests start queueing the limit shrinks proportionally, down to half per update. The lowest latency is
+ * forgotten every {@code PROBE_INTERVAL} samples, so that the limit follows a lasting change of the
+ * unloaded latency. The limit only moves while it is actually used, at least half of it being in flight,
+ * so an idle endpoint keeps its limit.
+ * <p>
+ * Requests of one endpoint class can have latencies orders of magnitude apart, a key lookup next to a
+ * search, which would keep the short-term average far above the lowest latency with no queueing at all.
+ * Samples therefore belong to a latency population, typically the route, and each population compares its
+ * own latencies with its own unloaded one. Populations must be few: they are kept for good.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double TOLERANCE = 2;
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_WINDOW = 10;
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Latency> latencies = new HashMap<>();
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    /**
+     * Admits a request when the requests in flight use less than a share of the limit.
+     *
+     * @param share the share of the limit available to the request, 1 for the whole limit
+     * @return true if admitted, in which case {@link #release} must follow
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and adapts the limit to its latency.
+     *
+     * @param rttNanos   the time the request took
+     * @param population the latency population of the request, such as its route
+     */
+    public void release(long rttNanos, String population) {
+        int current = inFlight.getAndDecrement();
+        update(population, rttNanos, current);
+    }
+
+    /**
+     * Releases an admitted request whose latency says nothing about congestion.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(String population, double rtt, int inFlightAtCompletion) {
+        double gradient = latencies.computeIfAbsent(population, key -> new Latency()).sample(rtt);
+        if (inFlightAtCompletion < limit / 2) {
+            return;
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of admitted requests in flight.
+     *
+     * @return the requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The latencies of one population.
+     */
+    private static final class Latency {
+        private double shortRtt;
+        private double noLoadRtt = Double.MAX_VALUE;
+        private int samples;
+
+        /**
+         * Records a latency.
+         *
+         * @return the gradient of the population, from 0.5 when queueing to 1 when not
+         */
+        private double sample(double rtt) {
+            if (++samples % PROBE_INTERVAL == 0) {
+                noLoadRtt = shortRtt;
+            }
+            noLoadRtt = Math.min(noLoadRtt, rtt);
+            shortRtt = shortRtt == 0 ? rtt : shortRtt + (rtt - shortRtt) / SHORT_WINDOW;
+            return Math.max(0.5, Math.min(1.0, TOLERANCE * noLoadRtt / shortRtt));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.edig.searchengine.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Puts the product API behind {@link AdmissionControlFilter}, unless {@code admission.enabled} is false.
+ * <p>
+ * The limit of each endpoint class starts at {@code admission.<class>.initial-limit} and adapts between
+ * {@code min-limit} and {@code max-limit}; the whole-catalog listings may use
+ * {@code admission.catalog-listing-share} of the list limit. Rejected requests are told to retry after
+ * {@code admission.retry-after-seconds}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "admission.enabled", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    private static final String BASE_PATH = "/products/v1";
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            Environment environment, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${admission.catalog-listing-share:0.5}") double catalogListingShare,
+            @Value("${admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        Map<AdmissionControlFilter.EndpointClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(AdmissionControlFilter.EndpointClass.class);
+        for (AdmissionControlFilter.EndpointClass endpointClass : AdmissionControlFilter.EndpointClass.values()) {
+            String prefix = "admission." + endpointClass.name().toLowerCase(Locale.ROOT) + ".";
+            limiters.put(endpointClass, new AdaptiveConcurrencyLimiter(
+                    environment.getProperty(prefix + "initial-limit", Integer.class, 20),
+                    environment.getProperty(prefix + "min-limit", Integer.class, 1),
+                    environment.getProperty(prefix + "max-limit", Integer.class, 200)));
+        }
+        AdmissionControlFilter filter = new AdmissionControlFilter(BASE_PATH, limiters, catalogListingShare,
+                retryAfterSeconds, objectMapper, meterRegistry);
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(BASE_PATH + "/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,181 @@
+package com.edig.searchengine.config;
+
+import com.edig.searchengine.dto.ErrorResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.edig.searchengine.constants.ProductConstants.STATUS_MESSAGE_OVERLOADED;
+
+/**
+ * Admission control for the product API: every endpoint class gets its own
+ * {@link AdaptiveConcurrencyLimiter}, and requests over the limit of their class are rejected at once with
+ * 503 and {@code Retry-After} instead of queueing in Tomcat.
+ * <p>
+ * The whole-catalog listings, whose cost grows with the catalog, may only use a share of the list limit,
+ * so that under load they are shed first while product and category lookups keep being served; their
+ * latency grows with the catalog rather than with congestion, so it does not drive the limit. Writes have
+ * a limit of their own and never compete with reads for admission.
+ * <p>
+ * Only requests that ran statements against the database, on the request thread, drive the limits: a 304,
+ * a cache hit or a search served by the index takes microseconds whatever the load on the database. The
+ * latencies are sampled per route, each route being a latency population of its own.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    /**
+     * The endpoint classes, each with its own limit.
+     */
+    public enum EndpointClass {SEARCH, LIST, WRITE}
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+    private static final Set<String> CATALOG_LISTINGS = Set.of("/list", "/list/stream");
+
+    private final String basePath;
+    private final Map<EndpointClass, AdaptiveConcurrencyLimiter> limiters;
+    private final Map<EndpointClass, Counter> rejections = new EnumMap<>(EndpointClass.class);
+    private final double catalogListingShare;
+    private final int retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionControlFilter(String basePath, Map<EndpointClass, AdaptiveConcurrencyLimiter> limiters,
+                                  double catalogListingShare, int retryAfterSeconds,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.basePath = basePath;
+        this.limiters = new EnumMap<>(limiters);
+        this.catalogListingShare = catalogListingShare;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+        this.limiters.forEach((endpointClass, limiter) -> {
+            String tag = endpointClass.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Concurrency limit of an endpoint class")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("admission.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Admitted requests in flight of an endpoint class")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            rejections.put(endpointClass, Counter.builder("admission.rejected")
+                    .description("Requests rejected over the concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry));
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(basePath);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(basePath.length());
+        EndpointClass endpointClass = classify(request.getMethod(), path);
+        AdaptiveConcurrencyLimiter limiter = limiters.get(endpointClass);
+        boolean catalogListing = endpointClass == EndpointClass.LIST && CATALOG_LISTINGS.contains(path);
+        if (!limiter.tryAcquire(catalogListing ? catalogListingShare : 1)) {
+            rejections.get(endpointClass).increment();
+            reject(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long statements = ConcurrencyLimitedDataSource.statementsOnCurrentThread();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            boolean databaseBound = ConcurrencyLimitedDataSource.statementsOnCurrentThread() != statements;
+            Runnable release = release(limiter, catalogListing || !databaseBound ? null : route(request), start);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Releases the admission of a request once, sampling its latency in a population unless it is null.
+     */
+    private static Runnable release(AdaptiveConcurrencyLimiter limiter, String population, long start) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (population == null) {
+                limiter.release();
+            } else {
+                limiter.release(System.nanoTime() - start, population);
+            }
+        };
+    }
+
+    /**
+     * Gets the route pattern the request was mapped to, as the number of routes is bounded unlike the paths.
+     */
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "unmapped";
+    }
+
+    static EndpointClass classify(String method, String path) {
+        if (path.startsWith("/search") || path.startsWith("/suggest")) {
+            return EndpointClass.SEARCH;
+        }
+        return SAFE_METHODS.contains(method) ? EndpointClass.LIST : EndpointClass.WRITE;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponseDTO("uri=" + request.getRequestURI(),
+                HttpStatus.SERVICE_UNAVAILABLE, STATUS_MESSAGE_OVERLOADED, LocalDateTime.now()));
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
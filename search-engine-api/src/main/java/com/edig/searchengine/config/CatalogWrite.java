@@ -0,0 +1,17 @@
+package com.edig.searchengine.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method that changes the catalog. With read replicas, its caller reads from the primary
+ * for the read-your-writes window; see {@link ReadYourWritesFilter}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CatalogWrite {
+}
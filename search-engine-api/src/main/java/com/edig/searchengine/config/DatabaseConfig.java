@@ -0,0 +1,79 @@
+package com.edig.searchengine.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Puts a {@link ConcurrencyLimitedDataSource} in front of the connection pool.
+ * <p>
+ * The limit defaults to the Hikari pool size, so callers queue fairly in front of the pool with their own
+ * timeout; it can be lowered with {@code database.max-concurrency} to leave connections for batch work.
+ * With read replicas, {@link ReplicaRoutingConfig} limits every pool on its own instead.
+ */
+@Configuration
+public class DatabaseConfig {
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || isLimited(dataSource)) {
+                    return bean;
+                }
+                return limit(dataSource, environment);
+            }
+        };
+    }
+
+    /**
+     * Puts a data source behind a limiter sized from the {@code database.*} and Hikari settings.
+     *
+     * @param dataSource  the data source
+     * @param environment the environment holding the settings
+     * @return the limited data source
+     */
+    static ConcurrencyLimitedDataSource limit(DataSource dataSource, Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int maxConcurrency = environment.getProperty("database.max-concurrency", Integer.class, poolSize);
+        long acquireTimeout = environment.getProperty("database.acquire-timeout-ms", Long.class, 2000L);
+        return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+    }
+
+    /**
+     * Whether a data source already limits its connections, itself or through the data sources it wraps,
+     * like the pools behind the replica router.
+     */
+    private static boolean isLimited(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ConcurrencyLimitedDataSource.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Bean
+    public MeterBinder databaseLimiterMetrics(DataSource dataSource) {
+        return registry -> {
+            ConcurrencyLimitedDataSource limited;
+            try {
+                limited = dataSource.unwrap(ConcurrencyLimitedDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            Gauge.builder("database.limiter.active", limited, ConcurrencyLimitedDataSource::getActiveConnections)
+                    .description("Connections checked out through the database concurrency limiter")
+                    .register(registry);
+            Gauge.builder("database.limiter.waiting", limited, ConcurrencyLimitedDataSource::getWaitingCallers)
+                    .description("Callers waiting on the database concurrency limiter")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.edig.searchengine.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Gives every client read-your-writes consistency over lagging replicas.
+ * <p>
+ * A request handled by a {@link CatalogWrite} method hands the client a cookie holding the end of the
+ * read-your-writes window; until then, the requests carrying it read from the primary, as does the writing
+ * request itself. Writes are told by their handler rather than by their HTTP method, so that reads sent as
+ * POST, like the batch search, keep the client on the replicas. The cookie lives on the client, so the window
+ * holds whichever instance serves the next request. A cookie announcing a window longer than the configured
+ * one is ignored.
+ * <p>
+ * As a filter it pins the requests within a window; as a handler interceptor it opens the window.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter implements HandlerInterceptor {
+
+    static final String COOKIE = "primary-until";
+
+    private final long windowMillis;
+
+    public ReadYourWritesFilter(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReplicaRoutingDataSource.pinToPrimary(withinWindow(request, System.currentTimeMillis()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.pinToPrimary(false);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method && method.hasMethodAnnotation(CatalogWrite.class)) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + windowMillis));
+            cookie.setMaxAge((int) Math.ceil(windowMillis / 1000.0));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            ReplicaRoutingDataSource.pinToPrimary(true);
+        }
+        return true;
+    }
+
+    private boolean withinWindow(HttpServletRequest request, long now) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    long until = Long.parseLong(cookie.getValue());
+                    return until > now && until <= now + windowMillis;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
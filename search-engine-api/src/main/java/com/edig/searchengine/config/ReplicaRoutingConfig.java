@@ -0,0 +1,98 @@
+package com.edig.searchengine.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits reads from writes when read replicas are listed in {@code database.replicas.urls}.
+ * <p>
+ * The primary comes from {@code spring.datasource} and every replica gets its own Hikari pool with the same
+ * credentials and {@code spring.datasource.hikari} settings, each behind its own concurrency limiter.
+ * {@code @Transactional(readOnly = true)} service methods read from the replicas; writes, reads outside a
+ * read-only transaction and reads within {@code database.replicas.read-your-writes-ms} of the client's own
+ * {@link CatalogWrite} requests go to the primary. Replicas are checked every
+ * {@code database.replicas.health-check-interval-ms} and the number of healthy ones is exported as
+ * {@code database.replicas.healthy}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${database.replicas.urls:}'.isBlank()")
+public class ReplicaRoutingConfig {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 @Value("${database.replicas.urls}") List<String> replicaUrls) {
+        DataSource primary = DatabaseConfig.limit(pool(properties, environment, properties.determineUrl(), "primary"), environment);
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls) {
+            HikariDataSource replica = pool(properties, environment, replicaUrl.trim(), "replica-" + replicas.size());
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(DatabaseConfig.limit(replica, environment));
+        }
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replicas));
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, Environment environment, String url, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pools.add(pool);
+        return pool;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${database.replicas.read-your-writes-ms:5000}") long windowMillis) {
+        return new ReadYourWritesFilter(windowMillis);
+    }
+
+    @Bean
+    public WebMvcConfigurer readYourWritesInterceptor(ReadYourWritesFilter readYourWritesFilter) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(readYourWritesFilter);
+            }
+        };
+    }
+
+    @Bean
+    public SchedulingConfigurer replicaHealthCheck(DataSource dataSource,
+                                                   @Value("${database.replicas.health-check-interval-ms:5000}") long intervalMillis) throws SQLException {
+        ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        return registrar -> registrar.addFixedDelayTask(routing::checkReplicas, Duration.ofMillis(intervalMillis));
+    }
+
+    @Bean
+    public MeterBinder replicaMetrics(DataSource dataSource) throws SQLException {
+        ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        return registry -> Gauge.builder("database.replicas.healthy", routing, ReplicaRoutingDataSource::getHealthyReplicas)
+                .description("Read replicas currently receiving reads")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,176 @@
+package com.edig.searchengine.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Routes read-only transactions to the replicas and everything else to the primary.
+ * <p>
+ * A connection goes to a replica when the current transaction is {@code readOnly} and the current thread
+ * has not been pinned to the primary by {@link #pinToPrimary}, which serves a client's reads from the
+ * primary for a while after its own writes. Reads that fill a cache shared by every client go through
+ * {@link #readFromPrimary}: a lagging copy cached there would be served to the writer too, pin or not.
+ * The pin belongs to the thread, so work handed to another thread must carry it over. Replicas are taken round-robin among the healthy ones; a
+ * replica that fails to hand out a connection, or fails its periodic {@link #checkReplicas() check}, is
+ * skipped until a later check passes; the read moves on to the next healthy replica, and to the primary when
+ * none is left.
+ * <p>
+ * The routing decision needs the transaction attributes, which are only known once the transaction has
+ * begun, so this data source must sit behind a {@code LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Pins the reads of the current thread to the primary, or releases the pin.
+     *
+     * @param pinned whether reads must go to the primary
+     * @return whether they had to before, to restore afterwards
+     */
+    public static boolean pinToPrimary(boolean pinned) {
+        boolean previous = PINNED_TO_PRIMARY.get() != null;
+        if (pinned) {
+            PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        } else {
+            PINNED_TO_PRIMARY.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Tells whether the reads of the current thread go to the primary, to carry the pin over to another thread.
+     *
+     * @return whether the current thread is pinned
+     */
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    /**
+     * Runs a read on the primary whatever the pin of the current thread.
+     *
+     * @param action the read
+     * @return its result
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        boolean pinned = pinToPrimary(true);
+        try {
+            return action.get();
+        } finally {
+            pinToPrimary(pinned);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PINNED_TO_PRIMARY.get() != null) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int candidate = (start + i) % replicas.size();
+            if (replicas.get(candidate).healthy) {
+                return candidate;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        for (Object key = determineCurrentLookupKey(); key instanceof Integer replica; key = determineCurrentLookupKey()) {
+            try {
+                return replicas.get(replica).dataSource.getConnection();
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        for (Object key = determineCurrentLookupKey(); key instanceof Integer replica; key = determineCurrentLookupKey()) {
+            try {
+                return replicas.get(replica).dataSource.getConnection(username, password);
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Validates a connection of every replica and updates which ones receive reads.
+     */
+    public void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(1);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.warn("Read replica {} is {}", i, healthy ? "back up" : "down");
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of replicas currently receiving reads.
+     *
+     * @return the healthy replicas
+     */
+    public int getHealthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    private void markDown(int replica, SQLException cause) {
+        if (replicas.get(replica).healthy) {
+            log.warn("Read replica {} is down", replica, cause);
+            replicas.get(replica).healthy = false;
+        }
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -17,4 +17,22 @@ public class ProductConstants {
     public static final String MADE_IN = "madeIn";
     public static final String BRAND = "brand";
     public static final String NAME = "name";
+    public static final String ID = "id";
+    public static final int CHEAP_RESULT_LIMIT = 10;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String CATEGORY_BY_NAME_CACHE = "categoryByName";
+    public static final String CATEGORIES_CACHE = "categories";
+    public static final String PRODUCT_BY_NAME_CACHE = "productByName";
+    public static final String TEXT_CSV = "text/csv";
+    public static final String STREAMING_FETCH_SIZE = "1000";
+    public static final String VOCABULARY_QUERY_TIMEOUT_MS = "2000";
+    public static final int DEFAULT_SUGGESTION_LIMIT = 10;
+    public static final int MAX_SUGGESTION_LIMIT = 50;
+    public static final int FACET_VALUE_LIMIT = 20;
+    public static final int DEFAULT_TOP_K = 50;
+    public static final int MAX_TOP_K = 1000;
+    public static final int MAX_BATCH_QUERIES = 50;
+    public static final String STATUS_MESSAGE_SEARCH_TIMEOUT = "Search timed out";
+    public static final String STATUS_MESSAGE_OVERLOADED = "Too many concurrent requests, retry later";
     }
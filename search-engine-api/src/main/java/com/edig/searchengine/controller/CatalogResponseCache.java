@@ -0,0 +1,108 @@
+package com.edig.searchengine.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized JSON of the whole-catalog responses, plain and gzip-compressed, per catalog version,
+ * so that repeated fetches of an unchanged catalog cost neither a database query nor serialization or
+ * compression. Bodies larger than {@code catalog.response-cache.max-bytes} are served but not kept.
+ */
+@Component
+class CatalogResponseCache {
+
+    static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final int maxBytes;
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+
+    CatalogResponseCache(ObjectMapper objectMapper, @Value("${catalog.response-cache.max-bytes:67108864}") int maxBytes) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A serialized response.
+     *
+     * @param version  the catalog version it was computed on
+     * @param identity the JSON
+     * @param gzip     the gzip-compressed JSON
+     */
+    record Body(long version, byte[] identity, byte[] gzip) {
+    }
+
+    /**
+     * Gets the body kept for the key when it is at least as recent as the version, or computes it.
+     * Concurrent misses wait for a single computation.
+     *
+     * @param key     the response
+     * @param version the current catalog version, read before loading
+     * @param loader  loads the response value
+     * @return the body
+     */
+    Body get(String key, long version, Supplier<?> loader) {
+        Body cached = bodies.get(key);
+        if (cached != null && cached.version() >= version) {
+            return cached;
+        }
+        synchronized (this) {
+            cached = bodies.get(key);
+            if (cached != null && cached.version() >= version) {
+                return cached;
+            }
+            Body body = serialize(version, loader.get());
+            if (body.identity().length <= maxBytes) {
+                bodies.put(key, body);
+            } else {
+                bodies.remove(key);
+            }
+            return body;
+        }
+    }
+
+    private Body serialize(long version, Object value) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(value);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 1 << 16)) {
+                gzip.write(identity);
+            }
+            return new Body(version, identity, compressed.toByteArray());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the catalog response", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header accepts gzip.
+     *
+     * @param acceptEncoding the header, or null
+     * @return true if gzip, or any coding, is accepted with a non-zero quality
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase(GZIP) || name.equals("*")) {
+                return parameters.length < 2 || !parameters[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
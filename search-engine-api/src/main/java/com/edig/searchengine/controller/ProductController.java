@@ -1,24 +1,47 @@
 package com.edig.searchengine.controller;
 
+import com.edig.searchengine.config.CatalogWrite;
+import com.edig.searchengine.config.ReplicaRoutingDataSource;
 import com.edig.searchengine.constants.ProductConstants;
+import com.edig.searchengine.dto.BatchSearchRequestDTO;
+import com.edig.searchengine.dto.BatchSearchResultDTO;
+import com.edig.searchengine.dto.BulkIngestionResultDTO;
 import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.dto.ProductPageDTO;
 import com.edig.searchengine.dto.ResponseDTO;
-import com.edig.searchengine.entity.Category;
+import com.edig.searchengine.dto.SearchResultDTO;
+import com.edig.searchengine.dto.SuggestionDTO;
 import com.edig.searchengine.entity.Product;
 import com.edig.searchengine.entity.SearchQuery;
+import com.edig.searchengine.search.CatalogVersion;
+import com.edig.searchengine.search.SortOrder;
+import com.edig.searchengine.service.ProductIngestionService;
 import com.edig.searchengine.service.ProductService;
+import com.edig.searchengine.service.SingleFlight;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 @RestController()
 @RequestMapping(path="/products/v1", produces = "application/json")
@@ -28,6 +51,11 @@ import java.util.List;
 @CrossOrigin("http://localhost:4200")
 public class ProductController {
     private ProductService productService;
+    private ProductIngestionService productIngestionService;
+    private ObjectMapper objectMapper;
+    private CatalogVersion catalogVersion;
+    private CatalogResponseCache catalogResponseCache;
+    private SingleFlight singleFlight;
 
     @Operation(summary = "Add a new product",
             description = "Add a new product to the database",
@@ -35,21 +63,84 @@ public class ProductController {
     @ApiResponse(responseCode = "201", description = "Product added successfully")
     @ApiResponse(responseCode = "400", description = "Bad request")
     @PostMapping("/add")
+    @CatalogWrite
     public ResponseEntity<Object> addProduct(@Valid @RequestBody ProductDTO product) {
         productService.addProduct(product);
         return ResponseEntity.status(201).body(new ResponseDTO(ProductConstants.STATUS_CODE_SUCCESS, ProductConstants.STATUS_MESSAGE_SUCCESS));
     }
 
+    @Operation(summary = "Add products in bulk",
+            description = "Add many products from a streamed JSON array. Products are written in chunks, invalid or duplicated ones are rejected",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "Products ingested, see accepted and rejected counts")
+    @ApiResponse(responseCode = "400", description = "Malformed payload")
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @CatalogWrite
+    public ResponseEntity<Object> addProductsJson(InputStream body) {
+        BulkIngestionResultDTO result = productIngestionService.ingestJson(body);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Add products in bulk from CSV",
+            description = "Add many products from CSV with a name,brand,madeIn,price,categoryName header. Products are written in chunks, invalid or duplicated ones are rejected",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "Products ingested, see accepted and rejected counts")
+    @ApiResponse(responseCode = "400", description = "Malformed payload")
+    @PostMapping(path = "/bulk", consumes = ProductConstants.TEXT_CSV)
+    @CatalogWrite
+    public ResponseEntity<Object> addProductsCsv(InputStream body) {
+        BulkIngestionResultDTO result = productIngestionService.ingestCsv(body);
+        return ResponseEntity.ok(result);
+    }
+
     @Operation(summary = "List all products",
             description = "List all products from the database",
             tags = {"Product REST API"})
     @ApiResponse(responseCode = "200", description = "Products found")
+    @ApiResponse(responseCode = "304", description = "Catalog unchanged since the ETag or date sent")
     @ApiResponse(responseCode = "404", description = "Products not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @GetMapping("/list")
-    public ResponseEntity<Object> listAll() {
-        List<ProductDTO> products = productService.listAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> listAll(WebRequest request) {
+        return catalogResponse(request, "list", productService::listAllProducts);
+    }
+
+    @Operation(summary = "List a page of products",
+            description = "List products from the database one page at a time, ordered by id. Pass the returned nextCursor to get the next page",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "Products found")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    @GetMapping("/list/page")
+    public ResponseEntity<Object> listPage(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "" + ProductConstants.DEFAULT_PAGE_SIZE) int size) {
+        ProductPageDTO page = productService.listProductsPage(cursor, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @Operation(summary = "Stream all products",
+            description = "Stream all products from the database as newline delimited JSON, one product per line",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "Products streamed")
+    @GetMapping(path = "/list/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        ObjectWriter writer = objectMapper.writerFor(ProductDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        boolean pinned = ReplicaRoutingDataSource.isPinnedToPrimary();
+        StreamingResponseBody body = outputStream -> {
+            boolean previous = ReplicaRoutingDataSource.pinToPrimary(pinned);
+            try {
+                productService.streamAllProducts(product -> {
+                    try {
+                        writer.writeValue(outputStream, product);
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                ReplicaRoutingDataSource.pinToPrimary(previous);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @Operation(summary = "List products by category",
@@ -60,7 +151,8 @@ public class ProductController {
 
     @GetMapping("/list/category")
     public ResponseEntity<Object> listProductsByCategory(@RequestParam String name) {
-        List<ProductDTO> products = productService.listProductsByCategory(name);
+        List<ProductDTO> products = singleFlight.execute("listProductsByCategory", name,
+                () -> productService.listProductsByCategory(name));
         return ResponseEntity.ok(products);
     }
 
@@ -72,7 +164,7 @@ public class ProductController {
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @GetMapping("/list/{name}")
     public ResponseEntity<Object> listProductByName(@PathVariable String name) {
-        ProductDTO product = productService.getProductByName(name);
+        ProductDTO product = singleFlight.execute("getProductByName", name, () -> productService.getProductByName(name));
         return ResponseEntity.ok(product);
     }
 
@@ -83,6 +175,7 @@ public class ProductController {
     @ApiResponse(responseCode = "404", description = "Product not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @PutMapping("/update")
+    @CatalogWrite
     public ResponseEntity<Object> updateProduct(@Valid @RequestBody ProductDTO product) {
         boolean updated = productService.updateProduct(product);
         if (updated) {
@@ -99,6 +192,7 @@ public class ProductController {
     @ApiResponse(responseCode = "404", description = "Product not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @DeleteMapping("/delete/{name}")
+    @CatalogWrite
     public ResponseEntity<Object> deleteProduct(@PathVariable String name) {
         boolean deleted = productService.deleteProduct(name);
         if (deleted) {
@@ -112,26 +206,94 @@ public class ProductController {
             description = "List all categories from the database",
             tags = {"Product REST API"})
     @ApiResponse(responseCode = "200", description = "Categories found")
+    @ApiResponse(responseCode = "304", description = "Catalog unchanged since the ETag or date sent")
     @ApiResponse(responseCode = "404", description = "Categories not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     @GetMapping("/categories")
-    public ResponseEntity<Object> listAllVategories() {
-        List<Category> categories = productService.getCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> listAllVategories(WebRequest request) {
+        return catalogResponse(request, "categories", productService::getCategories);
+    }
+
+    /**
+     * Serves a whole-catalog response with a strong ETag and a Last-Modified date from the catalog version.
+     * A matching If-None-Match or If-Modified-Since is answered with 304 before anything is loaded; otherwise
+     * the body is served from the serialized, pre-compressed copy kept for the current version, which is
+     * loaded from the primary since every client is served that copy.
+     */
+    private ResponseEntity<byte[]> catalogResponse(WebRequest request, String key, Supplier<?> loader) {
+        String encoding = CatalogResponseCache.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) ? CatalogResponseCache.GZIP : null;
+        long version = catalogVersion.version();
+        if (request.checkNotModified(catalogVersion.etag(version, encoding), catalogVersion.lastModified().toEpochMilli())) {
+            return null;
+        }
+        CatalogResponseCache.Body body = catalogResponseCache.get(key, version, () -> ReplicaRoutingDataSource.readFromPrimary(loader));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (encoding != null) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, encoding).body(body.gzip());
+        }
+        return response.body(body.identity());
     }
 
 @Operation(summary = "Search products",
-            description = "Search products from the database",
+            description = "Search products from the database. sort is CATALOG, RELEVANCE, PRICE or PRICE_DESC and k bounds the results, "
+                    + "every match by default in CATALOG order and 50 otherwise. With facets=true, the products come wrapped with the facet counts of the matches",
             tags = {"Product REST API"})
     @ApiResponse(responseCode = "200", description = "Products found")
     @ApiResponse(responseCode = "404", description = "Products not found")
     @ApiResponse(responseCode = "500", description = "Internal server error")
 @CrossOrigin(origins = "http://localhost:4200")
 @GetMapping("/search")
-    public ResponseEntity<Object> searchProducts(@RequestParam String query){
-
-    List<ProductDTO> products = productService.searchProducts(query);
+    public ResponseEntity<Object> searchProducts(@RequestParam String query,
+                                                 @RequestParam(defaultValue = "false") boolean facets,
+                                                 @RequestParam(defaultValue = "CATALOG") SortOrder sort,
+                                                 @RequestParam(required = false) Integer k){
+    String key = query.toLowerCase(Locale.ROOT) + "|sort=" + sort + "|k=" + k;
+    if (facets) {
+        SearchResultDTO result = singleFlight.execute("searchProductsWithFacets", key,
+                () -> productService.searchProductsWithFacets(query, sort, k));
+        return ResponseEntity.ok(result);
+    }
+    List<ProductDTO> products = singleFlight.execute("searchProducts", key, () -> productService.searchProducts(query, sort, k));
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Search products in batch",
+            description = "Run many searches at once, in parallel, with the options of the search endpoint. Every search gets its own status, "
+                    + "so a search that finds nothing, fails or times out does not fail the others",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "One result per query, in order")
+    @ApiResponse(responseCode = "400", description = "Empty or too large batch")
+    @PostMapping(path = "/search/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> searchProductsBatch(@Valid @RequestBody BatchSearchRequestDTO request) {
+        List<BatchSearchResultDTO> results = productService.searchBatch(request.getQueries());
+        return ResponseEntity.ok(results);
+    }
+
+    @Operation(summary = "Search a page of products",
+            description = "Search products one page at a time, ordered by id. Pass the returned nextCursor to get the next page",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "Products found")
+    @ApiResponse(responseCode = "400", description = "Products not found or invalid cursor")
+    @GetMapping("/search/page")
+    public ResponseEntity<Object> searchProductsPage(@RequestParam String query,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "" + ProductConstants.DEFAULT_PAGE_SIZE) int size,
+                                                     @RequestParam(defaultValue = "false") boolean facets) {
+        ProductPageDTO page = productService.searchProductsPage(query, cursor, size, facets);
+        return ResponseEntity.ok(page);
+    }
+
+    @Operation(summary = "Suggest completions",
+            description = "Complete a typed prefix with the most common product names, brands, countries and categories, without querying the database",
+            tags = {"Product REST API"})
+    @ApiResponse(responseCode = "200", description = "Completions, empty while the search index is loading")
+    @GetMapping("/suggest")
+    public ResponseEntity<Object> suggest(@RequestParam String prefix,
+                                          @RequestParam(defaultValue = "" + ProductConstants.DEFAULT_SUGGESTION_LIMIT) int limit) {
+        List<SuggestionDTO> suggestions = productService.suggest(prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
 }
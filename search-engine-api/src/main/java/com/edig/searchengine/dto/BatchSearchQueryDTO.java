@@ -0,0 +1,25 @@
+package com.edig.searchengine.dto;
+
+import com.edig.searchengine.search.SortOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+@Schema(name = "BatchSearchQuery", description = "Schema to represent one search of a batch")
+public class BatchSearchQueryDTO {
+    @Schema(description = "Search query", example = "cheap dell laptops")
+    @NotBlank(message = "Query is required")
+    private String query;
+
+    @Schema(description = "Result order", example = "RELEVANCE")
+    private SortOrder sort = SortOrder.CATALOG;
+
+    @Schema(description = "Maximum number of results, every match by default in CATALOG order and 50 otherwise", example = "12")
+    @Positive(message = "k must be positive")
+    private Integer k;
+
+    @Schema(description = "Whether to add the facet counts of every matching product", example = "false")
+    private boolean facets;
+}
@@ -0,0 +1,19 @@
+package com.edig.searchengine.dto;
+
+import com.edig.searchengine.constants.ProductConstants;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(name = "BatchSearchRequest", description = "Schema to represent many searches sent at once")
+public class BatchSearchRequestDTO {
+    @Schema(description = "Searches to run, answered in the same order")
+    @NotEmpty(message = "Queries are required")
+    @Size(max = ProductConstants.MAX_BATCH_QUERIES, message = "At most " + ProductConstants.MAX_BATCH_QUERIES + " queries per batch")
+    private List<@Valid BatchSearchQueryDTO> queries;
+}
@@ -0,0 +1,25 @@
+package com.edig.searchengine.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+@Schema(name = "BatchSearchResult", description = "Schema to represent the outcome of one search of a batch")
+@Data @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchSearchResultDTO {
+    @Schema(description = "Search query", example = "cheap dell laptops")
+    private String query;
+    @Schema(description = "Status of this search, as the single search endpoint would return it", example = "OK")
+    private HttpStatus status;
+    @Schema(description = "Products found, absent when the search failed")
+    private List<ProductDTO> products;
+    @Schema(description = "Facet counts of every matching product, when asked for and the search index is loaded")
+    private FacetsDTO facets;
+    @Schema(description = "Error Message when the search failed", example = "Product not found")
+    private String errorMessage;
+}
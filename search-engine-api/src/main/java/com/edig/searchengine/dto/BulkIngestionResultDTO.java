@@ -0,0 +1,22 @@
+package com.edig.searchengine.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Schema(name = "BulkIngestionResult", description = "Schema to represent the outcome of a bulk ingestion")
+@Data @AllArgsConstructor
+public class BulkIngestionResultDTO {
+    @Schema(description = "Products inserted", example = "99800")
+    private long accepted;
+    @Schema(description = "Products rejected", example = "200")
+    private long rejected;
+    @Schema(description = "Total time in milliseconds", example = "9500")
+    private long elapsedMillis;
+    @Schema(description = "Inserted products per second", example = "10505.3")
+    private double productsPerSecond;
+    @Schema(description = "Outcome of each chunk")
+    private List<ChunkResultDTO> chunks;
+}
@@ -0,0 +1,18 @@
+package com.edig.searchengine.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Schema(name = "ChunkResult", description = "Schema to represent the outcome of one chunk of a bulk ingestion")
+@Data @AllArgsConstructor
+public class ChunkResultDTO {
+    @Schema(description = "Position of the chunk in the payload, starting at 0", example = "0")
+    private int chunk;
+    @Schema(description = "Products inserted", example = "998")
+    private int accepted;
+    @Schema(description = "Products rejected as invalid, duplicated or with an unknown category", example = "2")
+    private int rejected;
+    @Schema(description = "Time spent on the chunk in milliseconds", example = "85")
+    private long elapsedMillis;
+}
@@ -0,0 +1,22 @@
+package com.edig.searchengine.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Schema(name = "Facets", description = "Schema to represent the number of matching products per dimension value")
+@Data @AllArgsConstructor
+public class FacetsDTO {
+    @Schema(description = "Number of matching products", example = "42")
+    private long total;
+    @Schema(description = "Matching products per brand, most common first")
+    private Map<String, Long> brands;
+    @Schema(description = "Matching products per country, most common first")
+    private Map<String, Long> madeIns;
+    @Schema(description = "Matching products per category, most common first")
+    private Map<String, Long> categories;
+    @Schema(description = "Matching products per price bucket, cheapest first", example = "{\"0-25\": 3, \"25-50\": 7}")
+    private Map<String, Long> prices;
+}
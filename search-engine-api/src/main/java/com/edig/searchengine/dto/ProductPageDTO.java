@@ -0,0 +1,24 @@
+package com.edig.searchengine.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Schema(name = "ProductPage", description = "Schema to represent a page of Products and the cursor of the next page")
+@Data @AllArgsConstructor
+public class ProductPageDTO {
+    @Schema(description = "Products in the page")
+    private List<ProductDTO> products;
+    @Schema(description = "Opaque token to pass as cursor to fetch the next page, absent on the last page", example = "MTA")
+    private String nextCursor;
+    @Schema(description = "Facet counts of every matching product, when requested and the search index is loaded")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private FacetsDTO facets;
+
+    public ProductPageDTO(List<ProductDTO> products, String nextCursor) {
+        this(products, nextCursor, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.edig.searchengine.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Schema(name = "SearchResult", description = "Schema to represent the Products found by a search and their facet counts")
+@Data @AllArgsConstructor
+public class SearchResultDTO {
+    @Schema(description = "Products found")
+    private List<ProductDTO> products;
+    @Schema(description = "Facet counts of every matching product, absent while the search index is loading")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private FacetsDTO facets;
+}
@@ -0,0 +1,16 @@
+package com.edig.searchengine.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Schema(name = "Suggestion", description = "Schema to represent a typeahead completion")
+@Data @AllArgsConstructor
+public class SuggestionDTO {
+    @Schema(description = "Completed value", example = "Samsung")
+    private String text;
+    @Schema(description = "Dimension of the value: name, brand, madeIn or category", example = "brand")
+    private String type;
+    @Schema(description = "Number of products holding the value", example = "42")
+    private int count;
+}
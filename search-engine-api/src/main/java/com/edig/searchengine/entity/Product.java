@@ -1,10 +1,14 @@
 package com.edig.searchengine.entity;
 
+import com.edig.searchengine.search.ProductIndexListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
+@EntityListeners(ProductIndexListener.class)
 @Data @NoArgsConstructor
 public class Product {
     @Id
@@ -15,6 +19,9 @@ public class Product {
     private String madeIn;
     private float price;
 
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
+
     @ManyToOne
     private Category category;
 }
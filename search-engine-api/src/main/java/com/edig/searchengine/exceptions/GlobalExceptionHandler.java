@@ -2,11 +2,14 @@ package com.edig.searchengine.exceptions;
 
 import com.edig.searchengine.dto.ErrorResponseDTO;
 import com.edig.searchengine.dto.ResponseDTO;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -61,6 +64,21 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         ErrorResponseDTO errorResponseDTO = getErrorResponseDTO(request,HttpStatus.BAD_REQUEST, exception.getMessage());
         return new ResponseEntity<>(errorResponseDTO, HttpStatus.BAD_REQUEST);
     }
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponseDTO> handlerInvalidCursorException(InvalidCursorException exception, WebRequest request) {
+        ErrorResponseDTO errorResponseDTO = getErrorResponseDTO(request,HttpStatus.BAD_REQUEST, exception.getMessage());
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.BAD_REQUEST);
+    }
+    @ExceptionHandler(InvalidPayloadException.class)
+    public ResponseEntity<ErrorResponseDTO> handlerInvalidPayloadException(InvalidPayloadException exception, WebRequest request) {
+        ErrorResponseDTO errorResponseDTO = getErrorResponseDTO(request,HttpStatus.BAD_REQUEST, exception.getMessage());
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.BAD_REQUEST);
+    }
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class, QueryTimeoutException.class})
+    public ResponseEntity<ErrorResponseDTO> handlerDatabaseUnavailableException(Exception exception, WebRequest request) {
+        ErrorResponseDTO errorResponseDTO = getErrorResponseDTO(request,HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 
     private static ErrorResponseDTO getErrorResponseDTO(WebRequest request,HttpStatus statusRequest ,String exception) {
         ErrorResponseDTO errorResponseDTO = new ErrorResponseDTO(
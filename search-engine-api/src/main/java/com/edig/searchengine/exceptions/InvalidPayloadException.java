@@ -0,0 +1,7 @@
+package com.edig.searchengine.exceptions;
+
+public class InvalidPayloadException extends RuntimeException{
+    public InvalidPayloadException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,125 @@
+package com.edig.searchengine.ingestion;
+
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.exceptions.InvalidPayloadException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads products from CSV one line at a time. The first line is a header naming the columns
+ * ({@code name,brand,madeIn,price,categoryName}, in any order); fields may be double-quoted.
+ * Rows that cannot be read are returned with the unreadable fields left null, so they fail validation
+ * instead of aborting the import.
+ */
+public class ProductCsvReader implements Iterator<ProductDTO> {
+
+    private static final List<String> COLUMNS = List.of("name", "brand", "madeIn", "price", "categoryName");
+
+    private final BufferedReader reader;
+    private final int[] columnIndexes = new int[COLUMNS.size()];
+    private String nextLine;
+
+    public ProductCsvReader(InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String header = readLine();
+        if (header == null) {
+            throw new InvalidPayloadException("Missing CSV header");
+        }
+        List<String> headerFields = parseLine(header);
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            columnIndexes[i] = headerFields.indexOf(COLUMNS.get(i));
+            if (columnIndexes[i] < 0) {
+                throw new InvalidPayloadException("Missing CSV column " + COLUMNS.get(i));
+            }
+        }
+        this.nextLine = nextNonBlankLine();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextLine != null;
+    }
+
+    @Override
+    public ProductDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = parseLine(nextLine);
+        nextLine = nextNonBlankLine();
+
+        ProductDTO product = new ProductDTO();
+        product.setName(field(fields, 0));
+        product.setBrand(field(fields, 1));
+        product.setMadeIn(field(fields, 2));
+        product.setPrice(parsePrice(field(fields, 3)));
+        product.setCategoryName(field(fields, 4));
+        return product;
+    }
+
+    private String field(List<String> fields, int column) {
+        int index = columnIndexes[column];
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static Float parsePrice(String value) {
+        try {
+            return value == null ? null : Float.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String nextNonBlankLine() {
+        String line = readLine();
+        while (line != null && line.isBlank()) {
+            line = readLine();
+        }
+        return line;
+    }
+
+    private String readLine() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Splits a line on commas, honouring double-quoted fields and doubled quotes inside them.
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
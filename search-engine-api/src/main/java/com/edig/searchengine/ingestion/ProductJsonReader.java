@@ -0,0 +1,54 @@
+package com.edig.searchengine.ingestion;
+
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.exceptions.InvalidPayloadException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of products one element at a time, so the whole payload is never held in memory.
+ */
+public class ProductJsonReader implements Iterator<ProductDTO> {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private JsonToken nextToken;
+
+    public ProductJsonReader(ObjectMapper objectMapper, InputStream inputStream) {
+        this.objectMapper = objectMapper;
+        try {
+            this.parser = objectMapper.getFactory().createParser(inputStream);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidPayloadException("Expected a JSON array of products");
+            }
+            this.nextToken = parser.nextToken();
+        } catch (IOException e) {
+            throw new InvalidPayloadException("Malformed JSON: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextToken == JsonToken.START_OBJECT;
+    }
+
+    @Override
+    public ProductDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            ProductDTO product = objectMapper.readValue(parser, ProductDTO.class);
+            nextToken = parser.nextToken();
+            return product;
+        } catch (IOException e) {
+            throw new InvalidPayloadException("Malformed JSON at line " + parser.currentLocation().getLineNr() + ": " + e.getMessage());
+        }
+    }
+}
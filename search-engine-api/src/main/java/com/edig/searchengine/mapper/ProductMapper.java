@@ -4,6 +4,7 @@ import com.edig.searchengine.dto.ProductDTO;
 import com.edig.searchengine.entity.Product;
 import com.edig.searchengine.repository.CategoryRepository;
 import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.search.IndexedProduct;
 import lombok.AllArgsConstructor;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +32,22 @@ public class ProductMapper {
         return productDTO;
     }
 
+    public ProductDTO toProductDTO(IndexedProduct product) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setName(product.name());
+        productDTO.setBrand(product.brand());
+        productDTO.setMadeIn(product.madeIn());
+        productDTO.setPrice(product.price());
+        productDTO.setCategoryName(product.categoryName());
+
+        return productDTO;
+    }
+
+    public static IndexedProduct toIndexedProduct(Product product) {
+        return new IndexedProduct(product.getId(), product.getName(), product.getBrand(), product.getMadeIn(),
+                product.getPrice(), product.getCategory() == null ? null : product.getCategory().getName());
+    }
+
     public static Product toProduct(ProductDTO productDTO) {
         Product product = new Product();
         product.setName(productDTO.getName());
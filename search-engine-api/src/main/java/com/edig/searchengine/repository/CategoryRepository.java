@@ -1,22 +1,28 @@
 package com.edig.searchengine.repository;
 
 import com.edig.searchengine.entity.Category;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
 import java.util.List;
 
+import static com.edig.searchengine.constants.ProductConstants.CATEGORIES_CACHE;
+import static com.edig.searchengine.constants.ProductConstants.CATEGORY_BY_NAME_CACHE;
+
 @Repository
 @CrossOrigin("http://localhost:4200")
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     /**
-     * Find by name category.
+     * Find by name category. Cached, unknown names are not.
      *
      * @param name the name
      * @return the category
      */
+    @Cacheable(cacheNames = CATEGORY_BY_NAME_CACHE, unless = "#result == null")
     Category findCategoryByName(String name);
 
+    @Cacheable(CATEGORIES_CACHE)
     List<Category> findAll();
 }
@@ -2,17 +2,30 @@ package com.edig.searchengine.repository;
 
 import com.edig.searchengine.entity.Category;
 import com.edig.searchengine.entity.Product;
+import com.edig.searchengine.search.IndexedProduct;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.edig.searchengine.constants.ProductConstants.STREAMING_FETCH_SIZE;
+import static com.edig.searchengine.constants.ProductConstants.VOCABULARY_QUERY_TIMEOUT_MS;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_QUERY_TIMEOUT;
 
 @Repository
 @CrossOrigin("http://localhost:4200")
@@ -30,5 +43,131 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     List<String> findDistinctCategoryNames();
    @Query("SELECT DISTINCT p.name FROM Product p")
     List<String> findDistinctByName();
-}
 
+    /**
+     * Fetches every search dimension vocabulary in one round trip, as tagged rows: the distinct countries,
+     * brands and category names, plus one {@code name} row when some product name matches the pattern.
+     *
+     * @param namePattern a lower-case LIKE pattern escaped with {@code !}
+     * @return the tagged vocabulary rows
+     */
+    @QueryHints(@QueryHint(name = HINT_SPEC_QUERY_TIMEOUT, value = VOCABULARY_QUERY_TIMEOUT_MS))
+    @Query(nativeQuery = true, value =
+            "select 'madeIn' as dimension, p.made_in as term from product p where p.made_in is not null group by p.made_in " +
+            "union all select 'brand', p.brand from product p where p.brand is not null group by p.brand " +
+            "union all select 'category', c.name from product p join category c on c.id = p.category_id group by c.name " +
+            "union all select 'name', min(p.name) from product p where lower(p.name) like :namePattern escape '!' having count(*) > 0")
+    List<VocabularyTerm> findSearchVocabulary(@Param("namePattern") String namePattern);
+
+    /**
+     * A value of one search dimension.
+     */
+    interface VocabularyTerm {
+        String getDimension();
+
+        String getTerm();
+    }
+
+    /**
+     * Streams the whole catalog as flat index rows, ordered by id, without loading managed entities.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return the stream of rows
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p left join p.category c order by p.id")
+    Stream<IndexedProduct> streamIndexedProducts();
+
+    /**
+     * Streams the products modified after an instant as flat index rows, ordered by id.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param since the exclusive lower bound of the modification time
+     * @return the stream of rows
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p left join p.category c where p.updatedAt > :since order by p.id")
+    Stream<IndexedProduct> streamIndexedProductsUpdatedAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Streams every product id in ascending order.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return the stream of ids
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("select p.id from Product p order by p.id")
+    Stream<Long> streamIds();
+
+    /**
+     * Finds the latest product modification time.
+     *
+     * @return the time, or null when the catalog is empty
+     */
+    @Query("select max(p.updatedAt) from Product p")
+    LocalDateTime findLatestUpdate();
+
+    /**
+     * Finds the next page of products after an id, as flat rows.
+     *
+     * @param afterId the last id of the previous page
+     * @param limit   the page size
+     * @return the rows, ordered by id
+     */
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p left join p.category c where p.id > :afterId order by p.id")
+    List<IndexedProduct> findIndexedProductsAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Finds which of the names are already taken.
+     *
+     * @param names the names
+     * @return the existing names
+     */
+    @Query("select p.name from Product p where p.name in :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    /**
+     * Finds products by name, as flat rows.
+     *
+     * @param names the names
+     * @return the rows
+     */
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p left join p.category c where p.name in :names")
+    List<IndexedProduct> findIndexedProductsByNameIn(@Param("names") Collection<String> names);
+
+    /**
+     * Finds the whole catalog as flat rows, ordered by id, in a single statement.
+     *
+     * @return the rows
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p left join p.category c order by p.id")
+    List<IndexedProduct> findIndexedProducts();
+
+    /**
+     * Finds the products of a category as flat rows, ordered by id.
+     *
+     * @param category the category
+     * @return the rows
+     */
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p join p.category c where c = :category order by p.id")
+    List<IndexedProduct> findIndexedProductsByCategory(@Param("category") Category category);
+
+    /**
+     * Finds a product by name, as a flat row.
+     *
+     * @param name the name
+     * @return the row
+     */
+    @Query("select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+            "from Product p left join p.category c where p.name = :name")
+    Optional<IndexedProduct> findIndexedProductByName(@Param("name") String name);
+}
@@ -0,0 +1,28 @@
+package com.edig.searchengine.repository;
+
+import com.edig.searchengine.search.PriceRange;
+
+import java.util.List;
+
+/**
+ * The filters of a database search, every one of them required: each country, brand and category
+ * matches its column with LIKE, the name pattern matches the product name and the range bounds the price.
+ *
+ * @param madeIns     the countries
+ * @param brands      the brands
+ * @param categories  the category names
+ * @param namePattern the LIKE pattern of the product name, or null
+ * @param price       the price range, or null
+ */
+public record ProductSearchCriteria(List<String> madeIns, List<String> brands, List<String> categories,
+                                    String namePattern, PriceRange price) {
+
+    /**
+     * Whether no filter is set.
+     *
+     * @return true if the criteria would match the whole catalog
+     */
+    public boolean isEmpty() {
+        return madeIns.isEmpty() && brands.isEmpty() && categories.isEmpty() && namePattern == null && price == null;
+    }
+}
@@ -0,0 +1,130 @@
+package com.edig.searchengine.repository;
+
+import com.edig.searchengine.search.IndexedProduct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs database searches through parameterized JPQL templates, one per query shape.
+ * <p>
+ * The shape of a search is the number of values of each dimension, which bounds of the price are set,
+ * whether it resumes after an id and its order. Its JPQL is rendered once and reused for every search of
+ * the same shape with only the values bound, so Hibernate reuses the translated query from its plan cache
+ * instead of rendering a Criteria tree per request, and the database sees one SQL string per shape, which
+ * its prepared statement cache can serve. Results are projected into flat rows joined with their category
+ * in that one statement, without loading managed entities.
+ */
+@Repository
+public class ProductSearchQueries {
+
+    /**
+     * The order of the results.
+     */
+    public enum Order {
+        UNSORTED(""),
+        PRICE(" order by p.price"),
+        PRICE_THEN_ID(" order by p.price, p.id"),
+        PRICE_DESC_THEN_ID(" order by p.price desc, p.id"),
+        ID(" order by p.id");
+
+        private final String clause;
+
+        Order(String clause) {
+            this.clause = clause;
+        }
+    }
+
+    private record Shape(int madeIns, int brands, int categories, boolean name, boolean min, boolean max,
+                         boolean after, Order order) {
+    }
+
+    private final Map<Shape, String> templates = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Finds the products matching the criteria.
+     *
+     * @param criteria the filters
+     * @param afterId  the id the results resume after, or null
+     * @param order    the order of the results
+     * @param limit    the maximum number of results, or null for all of them
+     * @return the products, as flat rows
+     */
+    public List<IndexedProduct> find(ProductSearchCriteria criteria, Long afterId, Order order, Integer limit) {
+        boolean min = criteria.price() != null && criteria.price().hasMin();
+        boolean max = criteria.price() != null && criteria.price().hasMax();
+        Shape shape = new Shape(criteria.madeIns().size(), criteria.brands().size(), criteria.categories().size(),
+                criteria.namePattern() != null, min, max, afterId != null, order);
+        TypedQuery<IndexedProduct> query = entityManager.createQuery(templates.computeIfAbsent(shape, ProductSearchQueries::render), IndexedProduct.class);
+        bindAll(query, "madeIn", criteria.madeIns());
+        bindAll(query, "brand", criteria.brands());
+        bindAll(query, "category", criteria.categories());
+        if (shape.name()) {
+            query.setParameter("name", criteria.namePattern());
+        }
+        if (min) {
+            query.setParameter("minPrice", criteria.price().min());
+        }
+        if (max) {
+            query.setParameter("maxPrice", criteria.price().max());
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Gets the number of query shapes rendered so far.
+     *
+     * @return the number of templates
+     */
+    public int getTemplateCount() {
+        return templates.size();
+    }
+
+    private static void bindAll(TypedQuery<IndexedProduct> query, String name, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            query.setParameter(name + i, values.get(i));
+        }
+    }
+
+    private static String render(Shape shape) {
+        StringBuilder jpql = new StringBuilder(
+                "select new com.edig.searchengine.search.IndexedProduct(p.id, p.name, p.brand, p.madeIn, p.price, c.name) " +
+                "from Product p left join p.category c where 1 = 1");
+        appendLikes(jpql, "p.madeIn", "madeIn", shape.madeIns());
+        appendLikes(jpql, "p.brand", "brand", shape.brands());
+        appendLikes(jpql, "c.name", "category", shape.categories());
+        if (shape.name()) {
+            jpql.append(" and p.name like :name");
+        }
+        if (shape.min()) {
+            jpql.append(" and p.price >= :minPrice");
+        }
+        if (shape.max()) {
+            jpql.append(" and p.price <= :maxPrice");
+        }
+        if (shape.after()) {
+            jpql.append(" and p.id > :afterId");
+        }
+        return jpql.append(shape.order().clause).toString();
+    }
+
+    private static void appendLikes(StringBuilder jpql, String path, String name, int count) {
+        for (int i = 0; i < count; i++) {
+            jpql.append(" and ").append(path).append(" like :").append(name).append(i);
+        }
+    }
+}
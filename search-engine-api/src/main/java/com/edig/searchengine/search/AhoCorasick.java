@@ -0,0 +1,206 @@
+package com.edig.searchengine.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick multi-pattern matcher. Finds every occurrence of every pattern in a text in a single
+ * pass, in time linear in the text length plus the number of matches, regardless of how many patterns
+ * were compiled.
+ * <p>
+ * Transitions are kept in an open-addressing hash table keyed by state and character, so the automaton
+ * stays compact for large vocabularies.
+ */
+final class AhoCorasick {
+
+    /**
+     * Receives the matches found in a text.
+     */
+    @FunctionalInterface
+    interface MatchHandler {
+        /**
+         * Called for every match.
+         *
+         * @param pattern the index of the matched pattern
+         * @param start   the start offset of the match, inclusive
+         * @param end     the end offset of the match, exclusive
+         */
+        void onMatch(int pattern, int start, int end);
+    }
+
+    private static final int ROOT = 0;
+
+    private final int[] patternLengths;
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private int[] failure;
+    private final int[] output;
+    private int[] outputLink;
+    private int stateCount = 1;
+
+    /**
+     * Compiles the patterns.
+     *
+     * @param patterns the patterns, matched by their index
+     */
+    AhoCorasick(List<String> patterns) {
+        patternLengths = new int[patterns.size()];
+        int capacity = 1;
+        for (String pattern : patterns) {
+            capacity += pattern.length();
+        }
+        transitionKeys = new long[tableSize(capacity)];
+        Arrays.fill(transitionKeys, -1L);
+        transitionTargets = new int[transitionKeys.length];
+        output = new int[capacity];
+        Arrays.fill(output, -1);
+
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            patternLengths[i] = pattern.length();
+            int state = ROOT;
+            for (int j = 0; j < pattern.length(); j++) {
+                int next = transition(state, pattern.charAt(j));
+                if (next < 0) {
+                    next = stateCount++;
+                    putTransition(state, pattern.charAt(j), next);
+                }
+                state = next;
+            }
+            if (!pattern.isEmpty()) {
+                output[state] = i;
+            }
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Breadth-first pass computing, for every state, the longest proper suffix that is also a state,
+     * and the nearest state along that chain which ends a pattern.
+     */
+    private void buildFailureLinks() {
+        failure = new int[stateCount];
+        outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+
+        int[][] children = children();
+        int[] queue = new int[stateCount];
+        int head = 0, tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int state = queue[head++];
+            int[] targets = children[state];
+            int[] labels = children[state + stateCount];
+            for (int i = 0; i < targets.length; i++) {
+                int child = targets[i];
+                int target = -1;
+                if (state != ROOT) {
+                    int fallback = failure[state];
+                    target = transition(fallback, (char) labels[i]);
+                    while (target < 0 && fallback != ROOT) {
+                        fallback = failure[fallback];
+                        target = transition(fallback, (char) labels[i]);
+                    }
+                }
+                failure[child] = target >= 0 ? target : ROOT;
+                outputLink[child] = output[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Groups the transitions by source state. Row {@code s} holds the children of {@code s} and row
+     * {@code s + stateCount} the characters leading to them.
+     */
+    private int[][] children() {
+        int[] counts = new int[stateCount];
+        for (int slot = 0; slot < transitionKeys.length; slot++) {
+            if (transitionKeys[slot] >= 0) {
+                counts[(int) (transitionKeys[slot] >>> 16)]++;
+            }
+        }
+        int[][] rows = new int[stateCount * 2][];
+        for (int state = 0; state < stateCount; state++) {
+            rows[state] = new int[counts[state]];
+            rows[state + stateCount] = new int[counts[state]];
+            counts[state] = 0;
+        }
+        for (int slot = 0; slot < transitionKeys.length; slot++) {
+            long key = transitionKeys[slot];
+            if (key >= 0) {
+                int state = (int) (key >>> 16);
+                rows[state][counts[state]] = transitionTargets[slot];
+                rows[state + stateCount][counts[state]++] = (int) (key & 0xffff);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Scans the text and reports every pattern occurrence.
+     *
+     * @param text    the text
+     * @param handler the match handler
+     */
+    void match(CharSequence text, MatchHandler handler) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next = transition(state, c);
+            while (next < 0 && state != ROOT) {
+                state = failure[state];
+                next = transition(state, c);
+            }
+            state = next < 0 ? ROOT : next;
+            for (int matched = output[state] >= 0 ? state : outputLink[state]; matched >= 0; matched = outputLink[matched]) {
+                int pattern = output[matched];
+                handler.onMatch(pattern, i + 1 - patternLengths[pattern], i + 1);
+            }
+        }
+    }
+
+    int stateCount() {
+        return stateCount;
+    }
+
+    private int transition(int state, char c) {
+        long key = key(state, c);
+        int mask = transitionKeys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (transitionKeys[slot] == key) {
+                return transitionTargets[slot];
+            }
+            if (transitionKeys[slot] < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void putTransition(int state, char c, int target) {
+        long key = key(state, c);
+        int mask = transitionKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (transitionKeys[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        transitionKeys[slot] = key;
+        transitionTargets[slot] = target;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Sizes the transition table to a power of two at most half full.
+     */
+    private static int tableSize(int transitions) {
+        return Integer.highestOneBit(Math.max(transitions, 1) * 2 - 1) << 1;
+    }
+}
@@ -0,0 +1,62 @@
+package com.edig.searchengine.search;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the version of the catalog served by this instance, as an HTTP validator.
+ * <p>
+ * The version is bumped on every committed product change. Tags combine it with the boot time of the
+ * instance, so that a restart, which resets the counter, never reuses a tag for different content.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong version = new AtomicLong();
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    /**
+     * Records a committed product change.
+     *
+     * @param event the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Gets the current version.
+     *
+     * @return the version, higher after every change
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Gets the time of the last change, or of the startup when nothing changed since.
+     *
+     * @return the time, truncated to seconds as HTTP dates are
+     */
+    public Instant lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gets the strong entity tag of one representation of the current catalog.
+     *
+     * @param version  the catalog version the representation was computed on
+     * @param encoding the content coding of the representation, or null for identity
+     * @return the quoted tag
+     */
+    public String etag(long version, String encoding) {
+        return "\"" + bootId + "-" + version + (encoding == null ? "" : "-" + encoding) + "\"";
+    }
+}
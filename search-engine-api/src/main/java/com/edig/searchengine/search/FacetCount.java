@@ -0,0 +1,10 @@
+package com.edig.searchengine.search;
+
+/**
+ * The number of matching products holding a facet value.
+ *
+ * @param value the value, as stored on a product, or the price bucket label
+ * @param count the number of matching products
+ */
+public record FacetCount(String value, long count) {
+}
@@ -0,0 +1,189 @@
+package com.edig.searchengine.search;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable compressed bitmaps of the product ordinals holding every brand, country and category value,
+ * parallel to the term dictionaries, and falling in every price bucket. A search result is itself a bitmap,
+ * so each facet count is the cardinality of an intersection.
+ */
+final class FacetIndex {
+
+    /**
+     * Exclusive upper bounds of the price buckets; the last bucket is open-ended.
+     */
+    private static final float[] PRICE_BOUNDS = {25, 50, 100, 250, 500, 1000};
+    private static final String[] PRICE_LABELS = {"0-25", "25-50", "50-100", "100-250", "250-500", "500-1000", "1000+"};
+
+    private final RoaringBitmap[] brands;
+    private final RoaringBitmap[] madeIns;
+    private final RoaringBitmap[] categories;
+    private final RoaringBitmap[] priceBuckets;
+
+    private FacetIndex(RoaringBitmap[] brands, RoaringBitmap[] madeIns, RoaringBitmap[] categories,
+                       RoaringBitmap[] priceBuckets) {
+        this.brands = brands;
+        this.madeIns = madeIns;
+        this.categories = categories;
+        this.priceBuckets = priceBuckets;
+    }
+
+    /**
+     * Builds the bitmaps of the dictionaries and of the live documents.
+     *
+     * @param brands     the brand dictionary
+     * @param madeIns    the country dictionary
+     * @param categories the category dictionary
+     * @param documents  the documents by ordinal, null entries are skipped
+     * @return the facet index
+     */
+    static FacetIndex build(TermDictionary brands, TermDictionary madeIns, TermDictionary categories,
+                            IndexedProduct[] documents) {
+        return new FacetIndex(bitmaps(brands, TermDictionary.EMPTY, new RoaringBitmap[0]),
+                bitmaps(madeIns, TermDictionary.EMPTY, new RoaringBitmap[0]),
+                bitmaps(categories, TermDictionary.EMPTY, new RoaringBitmap[0]), priceBuckets(documents));
+    }
+
+    /**
+     * Returns a copy of this index following dictionaries and documents whose ordinals were renumbered.
+     * Terms whose posting list is shared with the previous dictionary keep their bitmap; the others and the
+     * price buckets are rebuilt.
+     *
+     * @param previous  the dictionaries this index was built on: brands, countries, categories
+     * @param changed   the renumbered dictionaries, in the same order
+     * @param documents the renumbered documents by ordinal, null entries are skipped
+     * @return the new index
+     */
+    FacetIndex withOrdinals(TermDictionary[] previous, TermDictionary[] changed, IndexedProduct[] documents) {
+        return new FacetIndex(bitmaps(changed[0], previous[0], brands), bitmaps(changed[1], previous[1], madeIns),
+                bitmaps(changed[2], previous[2], categories), priceBuckets(documents));
+    }
+
+    /**
+     * Returns a copy of this index following changed dictionaries and documents. Terms whose posting list
+     * is shared with the previous dictionary keep their bitmap; the others are rebuilt.
+     *
+     * @param previous      the dictionaries this index was built on: brands, countries, categories
+     * @param changed       the new dictionaries, in the same order
+     * @param documents     the documents by ordinal, null entries are deleted
+     * @param touched       the ordinals whose document changed
+     * @return the new index
+     */
+    FacetIndex withChanges(TermDictionary[] previous, TermDictionary[] changed, IndexedProduct[] documents, BitSet touched) {
+        if (touched.isEmpty()) {
+            return this;
+        }
+        RoaringBitmap[] newPriceBuckets = new RoaringBitmap[priceBuckets.length];
+        for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+            newPriceBuckets[bucket] = priceBuckets[bucket].clone();
+        }
+        for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+            for (RoaringBitmap bucket : newPriceBuckets) {
+                bucket.remove(ordinal);
+            }
+            if (documents[ordinal] != null) {
+                newPriceBuckets[bucket(documents[ordinal].price())].add(ordinal);
+            }
+        }
+        optimize(newPriceBuckets);
+        return new FacetIndex(bitmaps(changed[0], previous[0], brands), bitmaps(changed[1], previous[1], madeIns),
+                bitmaps(changed[2], previous[2], categories), newPriceBuckets);
+    }
+
+    /**
+     * Counts the matching products per value of every dimension.
+     *
+     * @param matches        the ordinals of the matching products
+     * @param dictionaries   the dictionaries the bitmaps follow: brands, countries, categories
+     * @param documents      the documents by ordinal, used to display values as stored
+     * @param limit          the maximum number of values per dimension
+     * @return the facet counts
+     */
+    Facets count(RoaringBitmap matches, TermDictionary[] dictionaries, IndexedProduct[] documents, int limit) {
+        List<FacetCount> prices = new ArrayList<>(priceBuckets.length);
+        for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+            long count = RoaringBitmap.andCardinality(matches, priceBuckets[bucket]);
+            if (count > 0) {
+                prices.add(new FacetCount(PRICE_LABELS[bucket], count));
+            }
+        }
+        return new Facets(matches.getLongCardinality(),
+                count(matches, dictionaries[0], brands, IndexedProduct::brand, documents, limit),
+                count(matches, dictionaries[1], madeIns, IndexedProduct::madeIn, documents, limit),
+                count(matches, dictionaries[2], categories, IndexedProduct::categoryName, documents, limit),
+                prices);
+    }
+
+    private static List<FacetCount> count(RoaringBitmap matches, TermDictionary dictionary, RoaringBitmap[] bitmaps,
+                                          Function<IndexedProduct, String> field, IndexedProduct[] documents, int limit) {
+        List<FacetCount> counts = new ArrayList<>();
+        if (matches.isEmpty()) {
+            return counts;
+        }
+        for (int i = 0; i < bitmaps.length; i++) {
+            long count = RoaringBitmap.andCardinality(matches, bitmaps[i]);
+            if (count > 0) {
+                IndexedProduct holder = documents[dictionary.postings(i)[0]];
+                counts.add(new FacetCount(holder != null ? field.apply(holder) : dictionary.term(i), count));
+            }
+        }
+        counts.sort(Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value));
+        return counts.size() > limit ? List.copyOf(counts.subList(0, limit)) : counts;
+    }
+
+    /**
+     * Gets one bitmap per term of the dictionary, reusing the previous bitmap of every term whose
+     * posting list did not change.
+     */
+    private static RoaringBitmap[] bitmaps(TermDictionary dictionary, TermDictionary previous, RoaringBitmap[] previousBitmaps) {
+        RoaringBitmap[] bitmaps = new RoaringBitmap[dictionary.size()];
+        int j = 0;
+        for (int i = 0; i < bitmaps.length; i++) {
+            String term = dictionary.term(i);
+            while (j < previous.size() && previous.term(j).compareTo(term) < 0) {
+                j++;
+            }
+            if (j < previous.size() && previous.postings(j) == dictionary.postings(i)) {
+                bitmaps[i] = previousBitmaps[j];
+            } else {
+                bitmaps[i] = RoaringBitmap.bitmapOf(dictionary.postings(i));
+                bitmaps[i].runOptimize();
+            }
+        }
+        return bitmaps;
+    }
+
+    private static RoaringBitmap[] priceBuckets(IndexedProduct[] documents) {
+        RoaringBitmap[] priceBuckets = new RoaringBitmap[PRICE_LABELS.length];
+        for (int bucket = 0; bucket < priceBuckets.length; bucket++) {
+            priceBuckets[bucket] = new RoaringBitmap();
+        }
+        for (int ordinal = 0; ordinal < documents.length; ordinal++) {
+            if (documents[ordinal] != null) {
+                priceBuckets[bucket(documents[ordinal].price())].add(ordinal);
+            }
+        }
+        optimize(priceBuckets);
+        return priceBuckets;
+    }
+
+    private static int bucket(float price) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static void optimize(RoaringBitmap[] bitmaps) {
+        for (RoaringBitmap bitmap : bitmaps) {
+            bitmap.runOptimize();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.edig.searchengine.search;
+
+import java.util.List;
+
+/**
+ * Facet counts of a search, per dimension, each sorted by descending count.
+ *
+ * @param total      the number of matching products
+ * @param brands     the counts per brand
+ * @param madeIns    the counts per country
+ * @param categories the counts per category
+ * @param prices     the counts per price bucket, in ascending price order
+ */
+public record Facets(long total, List<FacetCount> brands, List<FacetCount> madeIns, List<FacetCount> categories,
+                     List<FacetCount> prices) {
+}
@@ -0,0 +1,14 @@
+package com.edig.searchengine.search;
+
+/**
+ * Flattened, immutable view of a product as it is held by the search index.
+ *
+ * @param id           the product id
+ * @param name         the product name
+ * @param brand        the brand name
+ * @param madeIn       the country of origin
+ * @param price        the price
+ * @param categoryName the category name
+ */
+public record IndexedProduct(long id, String name, String brand, String madeIn, float price, String categoryName) {
+}
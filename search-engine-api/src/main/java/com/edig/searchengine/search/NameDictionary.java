@@ -0,0 +1,157 @@
+package com.edig.searchengine.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Immutable dictionary of normalized product names, sorted so that every name starting with a prefix
+ * forms a contiguous range found by binary search, with the ordinal of the product holding each name.
+ */
+final class NameDictionary {
+
+    private final String[] keys;
+    private final int[] ordinals;
+
+    private NameDictionary(String[] keys, int[] ordinals) {
+        this.keys = keys;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * Builds the dictionary over the live documents.
+     *
+     * @param documents the documents by ordinal, null entries are skipped
+     * @return the dictionary
+     */
+    static NameDictionary build(IndexedProduct[] documents) {
+        Entry[] entries = new Entry[documents.length];
+        int size = 0;
+        for (int ordinal = 0; ordinal < documents.length; ordinal++) {
+            Entry entry = entry(documents, ordinal);
+            if (entry != null) {
+                entries[size++] = entry;
+            }
+        }
+        Arrays.sort(entries, 0, size, Entry.ORDER);
+        String[] keys = new String[size];
+        int[] ordinals = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = entries[i].key;
+            ordinals[i] = entries[i].ordinal;
+        }
+        return new NameDictionary(keys, ordinals);
+    }
+
+    /**
+     * Returns a copy of this dictionary where the touched ordinals are re-read from the documents:
+     * their stale entries are dropped and the live ones are merged back in key order.
+     *
+     * @param documents the documents by ordinal, null entries are deleted
+     * @param touched   the ordinals whose document changed
+     * @return the new dictionary
+     */
+    NameDictionary withChanges(IndexedProduct[] documents, BitSet touched) {
+        if (touched.isEmpty()) {
+            return this;
+        }
+        Entry[] added = new Entry[touched.cardinality()];
+        int addedSize = 0;
+        for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+            Entry entry = entry(documents, ordinal);
+            if (entry != null) {
+                added[addedSize++] = entry;
+            }
+        }
+        Arrays.sort(added, 0, addedSize, Entry.ORDER);
+
+        String[] newKeys = new String[keys.length + addedSize];
+        int[] newOrdinals = new int[keys.length + addedSize];
+        int i = 0, j = 0, size = 0;
+        while (i < keys.length || j < addedSize) {
+            if (i < keys.length && touched.get(ordinals[i])) {
+                i++;
+            } else if (j == addedSize || (i < keys.length && compare(keys[i], ordinals[i], added[j]) < 0)) {
+                newKeys[size] = keys[i];
+                newOrdinals[size++] = ordinals[i++];
+            } else {
+                newKeys[size] = added[j].key;
+                newOrdinals[size++] = added[j++].ordinal;
+            }
+        }
+        return new NameDictionary(Arrays.copyOf(newKeys, size), Arrays.copyOf(newOrdinals, size));
+    }
+
+    /**
+     * Wraps entries that are already sorted, as read back from a snapshot.
+     *
+     * @param keys     the normalized names, sorted
+     * @param ordinals the ordinal holding every name
+     * @return the dictionary
+     */
+    static NameDictionary of(String[] keys, int[] ordinals) {
+        return new NameDictionary(keys, ordinals);
+    }
+
+    /**
+     * Returns a copy of this dictionary with its ordinals renumbered by a mapping that keeps their order,
+     * which keeps the entries sorted.
+     *
+     * @param newOrdinals the new ordinal of every ordinal
+     * @return the new dictionary
+     */
+    NameDictionary withOrdinals(int[] newOrdinals) {
+        int[] renumbered = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            renumbered[i] = newOrdinals[ordinals[i]];
+        }
+        return new NameDictionary(keys, renumbered);
+    }
+
+    /**
+     * Finds the first position whose key is not lower than the prefix.
+     *
+     * @param prefix the normalized prefix
+     * @return the start of the prefix range
+     */
+    int startOf(String prefix) {
+        int index = Arrays.binarySearch(keys, prefix);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && keys[index - 1].equals(prefix)) {
+            index--;
+        }
+        return index;
+    }
+
+    String key(int position) {
+        return keys[position];
+    }
+
+    int ordinal(int position) {
+        return ordinals[position];
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    private static Entry entry(IndexedProduct[] documents, int ordinal) {
+        IndexedProduct product = documents[ordinal];
+        if (product == null) {
+            return null;
+        }
+        String key = Tokenizer.normalize(product.name());
+        return key.isEmpty() ? null : new Entry(key, ordinal);
+    }
+
+    private static int compare(String key, int ordinal, Entry entry) {
+        int byKey = key.compareTo(entry.key);
+        return byKey != 0 ? byKey : Integer.compare(ordinal, entry.ordinal);
+    }
+
+    private record Entry(String key, int ordinal) {
+        static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparingInt(Entry::ordinal);
+    }
+}
@@ -0,0 +1,84 @@
+package com.edig.searchengine.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.edig.searchengine.constants.ProductConstants.*;
+
+/**
+ * The filters extracted from a free text search query.
+ *
+ * @param text       the original query text
+ * @param brands     the normalized brands mentioned in the query
+ * @param madeIns    the normalized countries mentioned in the query
+ * @param categories the normalized categories mentioned in the query
+ * @param name       the lowercase text to match as a product name substring, or null
+ * @param price      the price range, or null
+ * @param cheap      whether the cheapest products were asked for
+ */
+public record ParsedQuery(String text,
+                          List<String> brands,
+                          List<String> madeIns,
+                          List<String> categories,
+                          String name,
+                          PriceRange price,
+                          boolean cheap) {
+
+    /**
+     * Whether the query produced no filter at all.
+     *
+     * @return true if nothing in the query matched the catalog
+     */
+    public boolean isEmpty() {
+        return brands.isEmpty() && madeIns.isEmpty() && categories.isEmpty() && name == null && price == null;
+    }
+
+    /**
+     * Gets the dimension of every filter of the query, one entry per filter.
+     *
+     * @return the filter dimensions
+     */
+    public List<String> predicates() {
+        List<String> predicates = new ArrayList<>();
+        predicates.addAll(Collections.nCopies(brands.size(), BRAND));
+        predicates.addAll(Collections.nCopies(madeIns.size(), MADE_IN));
+        predicates.addAll(Collections.nCopies(categories.size(), CATEGORY));
+        if (name != null) {
+            predicates.add(NAME);
+        }
+        if (price != null) {
+            predicates.add(PRICE);
+        }
+        return predicates;
+    }
+
+    /**
+     * Gets the normalized form of the query: its filters with every dimension's values sorted, so that
+     * queries differing only in case, spacing or the order of the values they mention share one key.
+     *
+     * @return the normalized query
+     */
+    public String normalized() {
+        return Stream.of(sorted(brands), sorted(madeIns), sorted(categories), String.valueOf(name),
+                        String.valueOf(price), String.valueOf(cheap))
+                .collect(Collectors.joining("|"));
+    }
+
+    /**
+     * Gets the normalized form of the query extended with its distinct terms, sorted: relevance ranking
+     * scores the products on those terms on top of the filters, so that two queries with the same filters
+     * but different terms must not share ranked results.
+     *
+     * @return the normalized query with its terms
+     */
+    public String normalizedWithTerms() {
+        return normalized() + "|" + Tokenizer.tokenize(text).stream().distinct().sorted().collect(Collectors.joining(","));
+    }
+
+    private static String sorted(List<String> values) {
+        return values.stream().sorted().collect(Collectors.joining(","));
+    }
+}
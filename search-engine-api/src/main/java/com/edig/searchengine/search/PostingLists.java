@@ -0,0 +1,110 @@
+package com.edig.searchengine.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Operations on posting lists, i.e. strictly increasing arrays of document ordinals.
+ */
+final class PostingLists {
+
+    static final int[] EMPTY = new int[0];
+
+    private PostingLists() {}
+
+    /**
+     * Intersects two posting lists.
+     *
+     * @param a the first list
+     * @param b the second list
+     * @return the ordinals present in both lists
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Intersects all posting lists, starting from the shortest one.
+     *
+     * @param lists the lists
+     * @return the ordinals present in every list
+     */
+    static int[] intersectAll(List<int[]> lists) {
+        if (lists.isEmpty()) {
+            return EMPTY;
+        }
+        int[][] sorted = lists.toArray(new int[0][]);
+        Arrays.sort(sorted, (x, y) -> Integer.compare(x.length, y.length));
+        int[] result = sorted[0];
+        for (int i = 1; i < sorted.length && result.length > 0; i++) {
+            result = intersect(result, sorted[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Unions two posting lists.
+     *
+     * @param a the first list
+     * @param b the second list
+     * @return the ordinals present in either list
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[size++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[size++] = b[j++];
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[size++] = a[i++];
+        }
+        while (j < b.length) {
+            result[size++] = b[j++];
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Removes the ordinals of one posting list from another.
+     *
+     * @param a the list to remove from
+     * @param b the ordinals to remove
+     * @return the ordinals of a that are not in b
+     */
+    static int[] difference(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length) {
+            if (j == b.length || a[i] < b[j]) {
+                result[size++] = a[i++];
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,212 @@
+package com.edig.searchengine.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable numeric index holding document ordinals sorted by price, with a parallel price array
+ * so that range and cheapest/most expensive lookups are binary searches over primitives.
+ */
+final class PriceIndex {
+
+    private final float[] prices;
+    private final int[] ordinals;
+
+    private PriceIndex(float[] prices, int[] ordinals) {
+        this.prices = prices;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * Builds the index over the live documents.
+     *
+     * @param documents the documents by ordinal, null entries are skipped
+     * @return the index
+     */
+    static PriceIndex build(IndexedProduct[] documents) {
+        long[] keys = new long[documents.length];
+        int size = 0;
+        for (int ordinal = 0; ordinal < documents.length; ordinal++) {
+            if (documents[ordinal] != null) {
+                keys[size++] = sortKey(documents[ordinal].price(), ordinal);
+            }
+        }
+        keys = Arrays.copyOf(keys, size);
+        Arrays.sort(keys);
+        float[] prices = new float[size];
+        int[] ordinals = new int[size];
+        for (int i = 0; i < size; i++) {
+            ordinals[i] = (int) keys[i];
+            prices[i] = documents[ordinals[i]].price();
+        }
+        return new PriceIndex(prices, ordinals);
+    }
+
+    /**
+     * Wraps ordinals that are already sorted by price, as read back from a snapshot.
+     *
+     * @param documents the documents by ordinal
+     * @param ordinals  the ordinals of the live documents, by ascending price
+     * @return the index
+     */
+    static PriceIndex of(IndexedProduct[] documents, int[] ordinals) {
+        float[] prices = new float[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            prices[i] = documents[ordinals[i]].price();
+        }
+        return new PriceIndex(prices, ordinals);
+    }
+
+    /**
+     * Returns a copy of this index where the touched ordinals are re-read from the documents:
+     * their stale entries are dropped and the live ones are merged back in price order.
+     *
+     * @param documents the documents by ordinal, null entries are deleted
+     * @param touched   the ordinals whose document changed
+     * @return the new index
+     */
+    PriceIndex withChanges(IndexedProduct[] documents, BitSet touched) {
+        if (touched.isEmpty()) {
+            return this;
+        }
+        long[] addedKeys = new long[touched.cardinality()];
+        int addedSize = 0;
+        for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+            if (documents[ordinal] != null) {
+                addedKeys[addedSize++] = sortKey(documents[ordinal].price(), ordinal);
+            }
+        }
+        Arrays.sort(addedKeys, 0, addedSize);
+
+        float[] newPrices = new float[ordinals.length + addedSize];
+        int[] newOrdinals = new int[ordinals.length + addedSize];
+        int i = 0, j = 0, size = 0;
+        while (i < ordinals.length || j < addedSize) {
+            if (i < ordinals.length && touched.get(ordinals[i])) {
+                i++;
+            } else if (j == addedSize || (i < ordinals.length && sortKey(prices[i], ordinals[i]) < addedKeys[j])) {
+                newPrices[size] = prices[i];
+                newOrdinals[size++] = ordinals[i++];
+            } else {
+                newOrdinals[size] = (int) addedKeys[j++];
+                newPrices[size] = documents[newOrdinals[size]].price();
+                size++;
+            }
+        }
+        return new PriceIndex(Arrays.copyOf(newPrices, size), Arrays.copyOf(newOrdinals, size));
+    }
+
+    /**
+     * Returns a copy of this index with its ordinals renumbered by a mapping that keeps their order,
+     * which keeps the entries sorted.
+     *
+     * @param newOrdinals the new ordinal of every ordinal
+     * @return the new index
+     */
+    PriceIndex withOrdinals(int[] newOrdinals) {
+        int[] renumbered = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            renumbered[i] = newOrdinals[ordinals[i]];
+        }
+        return new PriceIndex(prices, renumbered);
+    }
+
+    /**
+     * Packs a price and an ordinal into a long whose natural order is by price, then ordinal.
+     */
+    private static long sortKey(float price, int ordinal) {
+        int bits = Float.floatToIntBits(price);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (ordinal & 0xffffffffL);
+    }
+
+    /**
+     * Gets the ordinals of every document priced within the range.
+     *
+     * @param range the price range
+     * @return the matching ordinals, sorted by ordinal
+     */
+    int[] within(PriceRange range) {
+        int from = lowerBound(range.min());
+        int[] result = Arrays.copyOfRange(ordinals, from, Math.max(from, upperBound(range.max())));
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Gets the ordinals of the cheapest documents priced within the range.
+     *
+     * @param range the price range, or null for no bound
+     * @param limit the maximum number of ordinals
+     * @return the matching ordinals, sorted by ascending price
+     */
+    int[] cheapest(PriceRange range, int limit) {
+        int from = range == null ? 0 : lowerBound(range.min());
+        int to = range == null ? ordinals.length : upperBound(range.max());
+        return Arrays.copyOfRange(ordinals, from, Math.max(from, Math.min(to, from + limit)));
+    }
+
+    /**
+     * Gets the ordinals of the most expensive documents priced within the range.
+     *
+     * @param range the price range, or null for no bound
+     * @param limit the maximum number of ordinals
+     * @return the matching ordinals, sorted by descending price then ascending ordinal
+     */
+    int[] mostExpensive(PriceRange range, int limit) {
+        int from = range == null ? 0 : lowerBound(range.min());
+        int to = range == null ? ordinals.length : upperBound(range.max());
+        int[] result = new int[Math.max(0, Math.min(limit, to - from))];
+        int size = 0;
+        for (int end = to; size < result.length; ) {
+            int start = Math.max(from, lowerBound(prices[end - 1]));
+            for (int i = start; i < end && size < result.length; i++) {
+                result[size++] = ordinals[i];
+            }
+            end = start;
+        }
+        return result;
+    }
+
+    int ordinal(int position) {
+        return ordinals[position];
+    }
+
+    int size() {
+        return ordinals.length;
+    }
+
+    /**
+     * Finds the index of the first price greater than or equal to the bound.
+     */
+    private int lowerBound(float minPrice) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < minPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the index of the first price strictly greater than the bound.
+     */
+    private int upperBound(float maxPrice) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] <= maxPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
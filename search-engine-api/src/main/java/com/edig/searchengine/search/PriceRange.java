@@ -0,0 +1,147 @@
+package com.edig.searchengine.search;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An inclusive price range, open-ended on either side, as expressed in a free text query.
+ * <p>
+ * The grammar understands, in order of precedence:
+ * <ul>
+ *     <li>{@code between 200 and 500}, {@code from $200 to $500}</li>
+ *     <li>{@code 500-800}, {@code 500 to 800}</li>
+ *     <li>an upper bound, {@code under 300}, {@code below}, {@code less than}, {@code up to}, {@code at most},
+ *     {@code max}, {@code <=}, and a lower bound, {@code over 300}, {@code above}, {@code more than},
+ *     {@code at least}, {@code min}, {@code >=}, {@code 300+}, {@code 300 and up}; a query holding both, like
+ *     {@code over 200 under 500}, gets a range bounded on both sides</li>
+ *     <li>an amount marked as a price, by a currency ({@code $500}, {@code 500 dollars}) or a cue
+ *     ({@code price 500}, {@code budget 500}), read as an upper bound</li>
+ * </ul>
+ * Amounts may carry a currency symbol or code ({@code $}, {@code €}, {@code £}, {@code usd}, {@code dollars}...),
+ * thousands separators and decimals ({@code $1,299.99}). Other numbers, like the model number of
+ * {@code galaxy s24}, are not prices. Bounds given in reverse order are swapped.
+ *
+ * @param min the inclusive lower bound, negative infinity when unbounded
+ * @param max the inclusive upper bound, positive infinity when unbounded
+ */
+public record PriceRange(float min, float max) {
+
+    private static final String NUMBER_PATTERN = "(\\d{1,3}(?:,\\d{3})+(?:\\.\\d+)?|\\d+(?:\\.\\d+)?)";
+    private static final String CURRENCY_PATTERN = "(?:usd|eur|gbp|dollars?|euros?|bucks|[$€£])";
+    private static final String AMOUNT_PATTERN = "[$€£]?\\s*" + NUMBER_PATTERN + "(?:\\s*" + CURRENCY_PATTERN + ")?";
+    private static final String START = "(?<![\\p{L}\\d.,-])";
+    private static final Pattern BETWEEN = Pattern.compile(
+            "\\b(?:between|from)\\s+" + AMOUNT_PATTERN + "\\s*(?:and|to|-|–)\\s*" + AMOUNT_PATTERN);
+    private static final Pattern RANGE = Pattern.compile(
+            START + AMOUNT_PATTERN + "\\s*(?:-|–|to)\\s*" + AMOUNT_PATTERN + "(?![\\p{L}\\d])");
+    private static final Pattern AT_MOST = Pattern.compile(
+            "(?:\\b(?:under|below|less than|cheaper than|up to|at most|max(?:imum)?)|<=?|≤)\\s*" + AMOUNT_PATTERN);
+    private static final Pattern AT_LEAST = Pattern.compile(
+            "(?:\\b(?:over|above|more than|greater than|at least|min(?:imum)?|from)|>=?|≥)\\s*" + AMOUNT_PATTERN);
+    private static final Pattern AT_LEAST_SUFFIX = Pattern.compile(
+            START + AMOUNT_PATTERN + "\\s*(?:\\+|and up\\b|or more\\b|and above\\b)");
+    private static final Pattern PRICED = Pattern.compile(
+            "(?:[$€£]|\\b(?:price[sd]?|priced at|budget|costs?|costing)\\s*(?:of\\s*)?[$€£]?)\\s*" + NUMBER_PATTERN);
+    private static final Pattern WITH_CURRENCY = Pattern.compile(
+            START + NUMBER_PATTERN + "\\s*" + CURRENCY_PATTERN + "(?![\\p{L}\\d])");
+    private static final List<Pattern> LOWER_BOUNDS = List.of(AT_LEAST, AT_LEAST_SUFFIX);
+
+    public PriceRange {
+        if (min > max) {
+            float swap = min;
+            min = max;
+            max = swap;
+        }
+    }
+
+    /**
+     * Creates a range of the prices at or below a bound.
+     *
+     * @param max the inclusive upper bound
+     * @return the range
+     */
+    public static PriceRange atMost(float max) {
+        return new PriceRange(Float.NEGATIVE_INFINITY, max);
+    }
+
+    /**
+     * Creates a range of the prices at or above a bound.
+     *
+     * @param min the inclusive lower bound
+     * @return the range
+     */
+    public static PriceRange atLeast(float min) {
+        return new PriceRange(min, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Extracts the price range of a query: its first range expression, else its first upper and lower bounds
+     * combined, else its first amount marked as a price.
+     *
+     * @param searchQuery the query
+     * @return the range, or null when the query mentions no price
+     */
+    public static PriceRange parse(String searchQuery) {
+        String lowerCaseQuery = searchQuery.toLowerCase(Locale.ROOT);
+        for (Pattern pattern : List.of(BETWEEN, RANGE)) {
+            Matcher matcher = pattern.matcher(lowerCaseQuery);
+            if (matcher.find()) {
+                return new PriceRange(amount(matcher.group(1)), amount(matcher.group(2)));
+            }
+        }
+        Matcher atMost = AT_MOST.matcher(lowerCaseQuery);
+        float max = atMost.find() ? amount(atMost.group(1)) : Float.POSITIVE_INFINITY;
+        float min = Float.NEGATIVE_INFINITY;
+        for (Pattern pattern : LOWER_BOUNDS) {
+            Matcher matcher = pattern.matcher(lowerCaseQuery);
+            if (matcher.find()) {
+                min = amount(matcher.group(1));
+                break;
+            }
+        }
+        if (min != Float.NEGATIVE_INFINITY || max != Float.POSITIVE_INFINITY) {
+            return new PriceRange(min, max);
+        }
+        for (Pattern pattern : List.of(PRICED, WITH_CURRENCY)) {
+            Matcher matcher = pattern.matcher(lowerCaseQuery);
+            if (matcher.find()) {
+                return atMost(amount(matcher.group(1)));
+            }
+        }
+        return null;
+    }
+
+    private static float amount(String digits) {
+        return Float.parseFloat(digits.replace(",", ""));
+    }
+
+    /**
+     * Whether the range has a lower bound.
+     *
+     * @return true if bounded below
+     */
+    public boolean hasMin() {
+        return min != Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Whether the range has an upper bound.
+     *
+     * @return true if bounded above
+     */
+    public boolean hasMax() {
+        return max != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Whether a price falls in the range.
+     *
+     * @param price the price
+     * @return true if within the bounds
+     */
+    public boolean contains(float price) {
+        return price >= min && price <= max;
+    }
+}
@@ -0,0 +1,22 @@
+package com.edig.searchengine.search;
+
+/**
+ * Published when a product is created, updated or deleted.
+ *
+ * @param productId the product id
+ * @param product   the new state of the product, or null when it was deleted
+ */
+public record ProductChangedEvent(long productId, IndexedProduct product) {
+
+    public static ProductChangedEvent upserted(IndexedProduct product) {
+        return new ProductChangedEvent(product.id(), product);
+    }
+
+    public static ProductChangedEvent deleted(long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isDeletion() {
+        return product == null;
+    }
+}
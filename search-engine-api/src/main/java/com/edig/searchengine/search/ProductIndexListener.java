@@ -0,0 +1,32 @@
+package com.edig.searchengine.search;
+
+import com.edig.searchengine.entity.Product;
+import com.edig.searchengine.mapper.ProductMapper;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener turning product writes into {@link ProductChangedEvent}s.
+ * The events are published inside the writing transaction and only reach the index once it commits.
+ */
+public class ProductIndexListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductIndexListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.upserted(ProductMapper.toIndexedProduct(product)));
+    }
+
+    @PostRemove
+    public void onRemoved(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(product.getId()));
+    }
+}
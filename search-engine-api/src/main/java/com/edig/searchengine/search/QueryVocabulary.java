@@ -0,0 +1,103 @@
+package com.edig.searchengine.search;
+
+import java.util.*;
+
+/**
+ * The brands, countries and categories of the catalog compiled into a single {@link AhoCorasick}
+ * automaton, so that every mention of them in a query is found in one linear pass over the query.
+ * A vocabulary is immutable and only recompiled when the set of values changes.
+ * <p>
+ * Values only match on whole tokens; {@link #mentioned(String, Collection)} applies the same rule to values
+ * held outside a vocabulary, so that the database search parses a query as the index does.
+ */
+public final class QueryVocabulary {
+
+    private static final int BRAND = 1;
+    private static final int MADE_IN = 1 << 1;
+    private static final int CATEGORY = 1 << 2;
+
+    private final String[] values;
+    private final int[] dimensions;
+    private final AhoCorasick automaton;
+
+    private QueryVocabulary(String[] values, int[] dimensions) {
+        this.values = values;
+        this.dimensions = dimensions;
+        this.automaton = new AhoCorasick(Arrays.asList(values));
+    }
+
+    /**
+     * Compiles the values of the dictionaries. A value present in several dimensions is compiled once.
+     *
+     * @param brands     the brands
+     * @param madeIns    the countries
+     * @param categories the categories
+     * @return the vocabulary
+     */
+    static QueryVocabulary build(TermDictionary brands, TermDictionary madeIns, TermDictionary categories) {
+        Map<String, Integer> dimensionsByValue = new LinkedHashMap<>();
+        brands.terms().forEach(value -> dimensionsByValue.merge(value, BRAND, (a, b) -> a | b));
+        madeIns.terms().forEach(value -> dimensionsByValue.merge(value, MADE_IN, (a, b) -> a | b));
+        categories.terms().forEach(value -> dimensionsByValue.merge(value, CATEGORY, (a, b) -> a | b));
+
+        String[] values = dimensionsByValue.keySet().toArray(new String[0]);
+        int[] dimensions = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            dimensions[i] = dimensionsByValue.get(values[i]);
+        }
+        return new QueryVocabulary(values, dimensions);
+    }
+
+    /**
+     * Finds the values mentioned in a normalized query. A value only matches on whole tokens.
+     *
+     * @param normalizedQuery the query, as produced by {@link Tokenizer#normalize(String)}
+     * @return the mentioned values per dimension
+     */
+    Matches match(String normalizedQuery) {
+        Matches matches = new Matches(new LinkedHashSet<>(), new LinkedHashSet<>(), new LinkedHashSet<>());
+        automaton.match(normalizedQuery, (pattern, start, end) -> {
+            if ((start > 0 && normalizedQuery.charAt(start - 1) != ' ')
+                    || (end < normalizedQuery.length() && normalizedQuery.charAt(end) != ' ')) {
+                return;
+            }
+            if ((dimensions[pattern] & BRAND) != 0) {
+                matches.brands().add(values[pattern]);
+            }
+            if ((dimensions[pattern] & MADE_IN) != 0) {
+                matches.madeIns().add(values[pattern]);
+            }
+            if ((dimensions[pattern] & CATEGORY) != 0) {
+                matches.categories().add(values[pattern]);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Finds the values mentioned in a query on whole tokens, both normalized as the vocabulary normalizes them.
+     *
+     * @param query  the query
+     * @param values the candidate values, as stored
+     * @return the mentioned values, as stored, in the given order
+     */
+    public static List<String> mentioned(String query, Collection<String> values) {
+        String paddedQuery = " " + Tokenizer.normalize(query) + " ";
+        return values.stream()
+                .filter(value -> {
+                    String normalized = Tokenizer.normalize(value);
+                    return !normalized.isEmpty() && paddedQuery.contains(" " + normalized + " ");
+                })
+                .toList();
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    /**
+     * The values mentioned in a query.
+     */
+    record Matches(Set<String> brands, Set<String> madeIns, Set<String> categories) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.edig.searchengine.search;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scores products against the terms of one query with BM25 over product names, plus fixed boosts for
+ * products whose brand, country or category is exactly one mentioned in the query.
+ */
+final class RelevanceScorer {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double BRAND_BOOST = 2.0;
+    private static final double CATEGORY_BOOST = 1.5;
+    private static final double MADE_IN_BOOST = 1.0;
+
+    private final String[] terms;
+    private final double[] idfs;
+    private final double averageLength;
+    private final ParsedQuery parsedQuery;
+
+    /**
+     * Prepares the scoring of a query.
+     *
+     * @param parsedQuery   the parsed query
+     * @param nameTokens    the name token dictionary, giving each term's document frequency
+     * @param documentCount the number of indexed products
+     * @param averageLength the average number of tokens in a name
+     */
+    RelevanceScorer(ParsedQuery parsedQuery, TermDictionary nameTokens, int documentCount, double averageLength) {
+        Set<String> distinct = Set.copyOf(Tokenizer.tokenize(parsedQuery.text()));
+        this.terms = distinct.toArray(new String[0]);
+        this.idfs = new double[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            int frequency = nameTokens.get(terms[i]).length;
+            idfs[i] = Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5));
+        }
+        this.averageLength = Math.max(averageLength, 1);
+        this.parsedQuery = parsedQuery;
+    }
+
+    double score(IndexedProduct product) {
+        double score = 0;
+        List<String> tokens = Tokenizer.tokenize(product.name());
+        double lengthNorm = K1 * (1 - B + B * tokens.size() / averageLength);
+        for (int i = 0; i < terms.length; i++) {
+            int frequency = 0;
+            for (String token : tokens) {
+                if (token.equals(terms[i])) {
+                    frequency++;
+                }
+            }
+            if (frequency > 0) {
+                score += idfs[i] * frequency * (K1 + 1) / (frequency + lengthNorm);
+            }
+        }
+        if (parsedQuery.brands().contains(Tokenizer.normalize(product.brand()))) {
+            score += BRAND_BOOST;
+        }
+        if (parsedQuery.categories().contains(Tokenizer.normalize(product.categoryName()))) {
+            score += CATEGORY_BOOST;
+        }
+        if (parsedQuery.madeIns().contains(Tokenizer.normalize(product.madeIn()))) {
+            score += MADE_IN_BOOST;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,91 @@
+package com.edig.searchengine.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the searches of a batch in parallel on a bounded pool.
+ * <p>
+ * The pool has {@code search.batch.parallelism} threads and a queue of {@code search.batch.queue-capacity}
+ * tasks; tasks beyond that are rejected rather than queued without bound. Every task of a batch shares one
+ * deadline, {@code search.batch.query-timeout-ms} after the batch was submitted, and tasks still running
+ * at the deadline are cancelled. Each task gets its own outcome, so one failing search never fails the others.
+ * The pool is exported as {@code executor.*} metrics named {@code searchBatch}.
+ */
+@Component
+public class SearchBatchExecutor {
+
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final long timeoutNanos;
+
+    public SearchBatchExecutor(MeterRegistry meterRegistry,
+                               @Value("${search.batch.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism,
+                               @Value("${search.batch.queue-capacity:1000}") int queueCapacity,
+                               @Value("${search.batch.query-timeout-ms:2000}") long timeoutMillis) {
+        this.pool = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("search-batch-"));
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "searchBatch");
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * The value or the failure of one task.
+     *
+     * @param value   the value, null when the task failed
+     * @param failure the failure, a {@link TimeoutException} when the deadline passed or a
+     *                {@link RejectedExecutionException} when the pool was full, null on success
+     * @param <T>     the value type
+     */
+    public record Outcome<T>(T value, Throwable failure) {
+    }
+
+    /**
+     * Runs the tasks in parallel and waits for all of them, up to the deadline.
+     *
+     * @param tasks the tasks
+     * @param <T>   the value type
+     * @return one outcome per task, in the order of the tasks
+     */
+    public <T> List<Outcome<T>> invokeAll(List<Callable<T>> tasks) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                futures.add(executor.submit(task));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        List<Outcome<T>> outcomes = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                outcomes.add(new Outcome<>(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), null));
+            } catch (ExecutionException e) {
+                outcomes.add(new Outcome<>(null, e.getCause()));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                outcomes.add(new Outcome<>(null, e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                outcomes.add(new Outcome<>(null, e));
+            }
+        }
+        return outcomes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,631 @@
+package com.edig.searchengine.search;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.edig.searchengine.constants.ProductConstants.*;
+
+/**
+ * Immutable in-memory inverted index over the product catalog.
+ * <p>
+ * Every product gets a dense ordinal; brands, countries and categories map their normalized value to
+ * the posting list of ordinals holding it, product names are indexed by token, and prices are kept in a
+ * sorted primitive index. Queries are answered by intersecting posting lists, without touching the database.
+ */
+public final class SearchIndex {
+
+    private static final int NAME_SCAN_LIMIT = 4096;
+    private static final Comparator<Suggestion> SUGGESTION_ORDER = Comparator.comparingInt(Suggestion::count).reversed()
+            .thenComparingInt(suggestion -> suggestion.text().length())
+            .thenComparing(Suggestion::text);
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version = VERSIONS.incrementAndGet();
+    private final IndexedProduct[] documents;
+    private final long[] ids;
+    private final int size;
+    private final TermDictionary brands;
+    private final TermDictionary madeIns;
+    private final TermDictionary categories;
+    private final TermDictionary nameGrams;
+    private final TermDictionary nameTokens;
+    private final long nameTokenCount;
+    private final NameDictionary names;
+    private final PriceIndex prices;
+    private final FacetIndex facets;
+    private final QueryVocabulary vocabulary;
+
+    private SearchIndex(IndexedProduct[] documents, long[] ids, int size, TermDictionary brands, TermDictionary madeIns,
+                        TermDictionary categories, TermDictionary nameGrams, TermDictionary nameTokens,
+                        long nameTokenCount, NameDictionary names, PriceIndex prices,
+                        FacetIndex facets, QueryVocabulary vocabulary) {
+        this.documents = documents;
+        this.ids = ids;
+        this.size = size;
+        this.brands = brands;
+        this.madeIns = madeIns;
+        this.categories = categories;
+        this.nameGrams = nameGrams;
+        this.nameTokens = nameTokens;
+        this.nameTokenCount = nameTokenCount;
+        this.names = names;
+        this.prices = prices;
+        this.facets = facets;
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Builds an index over the products, which must come in ascending id order.
+     *
+     * @param products the products
+     * @return the index
+     */
+    public static SearchIndex build(Iterable<IndexedProduct> products) {
+        List<IndexedProduct> documents = new ArrayList<>();
+        FieldPostings postings = new FieldPostings();
+
+        for (IndexedProduct product : products) {
+            int ordinal = documents.size();
+            documents.add(product);
+            postings.add(product, ordinal);
+        }
+
+        IndexedProduct[] documentArray = documents.toArray(new IndexedProduct[0]);
+        long[] ids = new long[documentArray.length];
+        for (int ordinal = 0; ordinal < documentArray.length; ordinal++) {
+            ids[ordinal] = documentArray[ordinal].id();
+        }
+        TermDictionary brands = TermDictionary.build(postings.brands);
+        TermDictionary madeIns = TermDictionary.build(postings.madeIns);
+        TermDictionary categories = TermDictionary.build(postings.categories);
+        return new SearchIndex(documentArray, ids, documentArray.length, brands, madeIns, categories,
+                TermDictionary.build(postings.nameGrams), TermDictionary.build(postings.nameTokens), postings.tokenCount,
+                NameDictionary.build(documentArray), PriceIndex.build(documentArray),
+                FacetIndex.build(brands, madeIns, categories, documentArray),
+                QueryVocabulary.build(brands, madeIns, categories));
+    }
+
+    /**
+     * Rebuilds an index from the structures of a snapshot, without tokenizing or sorting anything: only the
+     * facet bitmaps and the query vocabulary are derived again from the restored dictionaries.
+     *
+     * @param documents  the products, in ascending id order
+     * @param structures the structures of a {@linkplain #compacted() compacted} index over the same products
+     * @return the index
+     */
+    static SearchIndex restore(IndexedProduct[] documents, Structures structures) {
+        long[] ids = new long[documents.length];
+        for (int ordinal = 0; ordinal < documents.length; ordinal++) {
+            ids[ordinal] = documents[ordinal].id();
+        }
+        return new SearchIndex(documents, ids, documents.length, structures.brands(), structures.madeIns(),
+                structures.categories(), structures.nameGrams(), structures.nameTokens(), structures.nameTokenCount(),
+                structures.names(), structures.prices(),
+                FacetIndex.build(structures.brands(), structures.madeIns(), structures.categories(), documents),
+                QueryVocabulary.build(structures.brands(), structures.madeIns(), structures.categories()));
+    }
+
+    /**
+     * Returns a copy of this index without the holes left by deleted products, so that the ordinals are the
+     * positions of the products in {@link #products()}. Ordinals after the first hole are renumbered.
+     *
+     * @return the compacted index, this one when it has no hole
+     */
+    SearchIndex compacted() {
+        if (size == documents.length) {
+            return this;
+        }
+        IndexedProduct[] newDocuments = new IndexedProduct[size];
+        long[] newIds = new long[size];
+        int[] newOrdinals = new int[documents.length];
+        int firstShifted = -1;
+        int ordinal = 0;
+        for (int i = 0; i < documents.length; i++) {
+            newOrdinals[i] = ordinal;
+            if (documents[i] == null) {
+                firstShifted = firstShifted < 0 ? i : firstShifted;
+                continue;
+            }
+            newDocuments[ordinal] = documents[i];
+            newIds[ordinal++] = ids[i];
+        }
+        TermDictionary newBrands = brands.withOrdinals(newOrdinals, firstShifted);
+        TermDictionary newMadeIns = madeIns.withOrdinals(newOrdinals, firstShifted);
+        TermDictionary newCategories = categories.withOrdinals(newOrdinals, firstShifted);
+        return new SearchIndex(newDocuments, newIds, size, newBrands, newMadeIns, newCategories,
+                nameGrams.withOrdinals(newOrdinals, firstShifted), nameTokens.withOrdinals(newOrdinals, firstShifted),
+                nameTokenCount, names.withOrdinals(newOrdinals), prices.withOrdinals(newOrdinals),
+                facets.withOrdinals(new TermDictionary[]{brands, madeIns, categories},
+                        new TermDictionary[]{newBrands, newMadeIns, newCategories}, newDocuments),
+                vocabulary);
+    }
+
+    /**
+     * Gets the structures a snapshot stores next to the products.
+     *
+     * @return the structures
+     */
+    Structures structures() {
+        return new Structures(brands, madeIns, categories, nameGrams, nameTokens, nameTokenCount, names, prices);
+    }
+
+    /**
+     * Returns a new index with the changes applied, sharing every untouched posting list with this one.
+     * Changes to the same product are merged, the last one winning. Changed products keep their ordinal and
+     * deleted ones leave a hole. New products take the ordinal of their id's position, so that ordinals keep
+     * following ids: appended after the indexed ones, or, committed out of id order, inserted in between.
+     *
+     * @param changes the changes, in the order they happened
+     * @return the new index
+     */
+    public SearchIndex apply(Collection<ProductChangedEvent> changes) {
+        Map<Long, ProductChangedEvent> latest = new TreeMap<>();
+        for (ProductChangedEvent change : changes) {
+            latest.put(change.productId(), change);
+        }
+        long[] newIds = latest.values().stream()
+                .filter(change -> !change.isDeletion() && Arrays.binarySearch(ids, change.productId()) < 0)
+                .mapToLong(ProductChangedEvent::productId)
+                .toArray();
+        return withOrdinals(newIds).replace(latest.values());
+    }
+
+    /**
+     * Returns a copy of this index with an empty ordinal for every new id. Ids above the indexed ones are
+     * appended and everything is shared. A lower id shifts the ordinals after its position: the posting
+     * lists holding none of them are still shared, the others are renumbered, which costs a copy of the
+     * lists but none of the tokenizing and sorting of a rebuild.
+     *
+     * @param newIds the ids to add, ascending, none of them indexed
+     */
+    private SearchIndex withOrdinals(long[] newIds) {
+        if (newIds.length == 0) {
+            return this;
+        }
+        long[] mergedIds = new long[ids.length + newIds.length];
+        int firstShifted = -Arrays.binarySearch(ids, newIds[0]) - 1;
+        if (firstShifted == ids.length) {
+            System.arraycopy(ids, 0, mergedIds, 0, ids.length);
+            System.arraycopy(newIds, 0, mergedIds, ids.length, newIds.length);
+            return new SearchIndex(Arrays.copyOf(documents, mergedIds.length), mergedIds, size, brands, madeIns,
+                    categories, nameGrams, nameTokens, nameTokenCount, names, prices, facets, vocabulary);
+        }
+
+        IndexedProduct[] newDocuments = new IndexedProduct[mergedIds.length];
+        int[] newOrdinals = new int[ids.length];
+        int i = 0, j = 0, ordinal = 0;
+        while (i < ids.length || j < newIds.length) {
+            if (j == newIds.length || (i < ids.length && ids[i] < newIds[j])) {
+                newOrdinals[i] = ordinal;
+                newDocuments[ordinal] = documents[i];
+                mergedIds[ordinal++] = ids[i++];
+            } else {
+                mergedIds[ordinal++] = newIds[j++];
+            }
+        }
+        TermDictionary newBrands = brands.withOrdinals(newOrdinals, firstShifted);
+        TermDictionary newMadeIns = madeIns.withOrdinals(newOrdinals, firstShifted);
+        TermDictionary newCategories = categories.withOrdinals(newOrdinals, firstShifted);
+        return new SearchIndex(newDocuments, mergedIds, size, newBrands, newMadeIns, newCategories,
+                nameGrams.withOrdinals(newOrdinals, firstShifted), nameTokens.withOrdinals(newOrdinals, firstShifted),
+                nameTokenCount, names.withOrdinals(newOrdinals), prices.withOrdinals(newOrdinals),
+                facets.withOrdinals(new TermDictionary[]{brands, madeIns, categories},
+                        new TermDictionary[]{newBrands, newMadeIns, newCategories}, newDocuments),
+                vocabulary);
+    }
+
+    /**
+     * Returns a copy of this index with the changes applied, every upserted product already having an ordinal.
+     *
+     * @param changes the changes, at most one per product
+     */
+    private SearchIndex replace(Collection<ProductChangedEvent> changes) {
+        IndexedProduct[] newDocuments = documents.clone();
+        int newSize = size;
+        FieldPostings removed = new FieldPostings();
+        FieldPostings added = new FieldPostings();
+        BitSet touched = new BitSet();
+
+        for (ProductChangedEvent change : changes) {
+            int ordinal = Arrays.binarySearch(ids, change.productId());
+            if (ordinal < 0) {
+                continue;
+            }
+            if (newDocuments[ordinal] != null) {
+                removed.add(newDocuments[ordinal], ordinal);
+                newDocuments[ordinal] = null;
+                newSize--;
+                touched.set(ordinal);
+            }
+            if (!change.isDeletion()) {
+                newDocuments[ordinal] = change.product();
+                added.add(change.product(), ordinal);
+                newSize++;
+                touched.set(ordinal);
+            }
+        }
+
+        TermDictionary newBrands = brands.withChanges(removed.brands, added.brands);
+        TermDictionary newMadeIns = madeIns.withChanges(removed.madeIns, added.madeIns);
+        TermDictionary newCategories = categories.withChanges(removed.categories, added.categories);
+        QueryVocabulary newVocabulary = newBrands.hasSameTerms(brands) && newMadeIns.hasSameTerms(madeIns)
+                && newCategories.hasSameTerms(categories)
+                ? vocabulary
+                : QueryVocabulary.build(newBrands, newMadeIns, newCategories);
+        return new SearchIndex(newDocuments, ids, newSize, newBrands, newMadeIns,
+                newCategories, nameGrams.withChanges(removed.nameGrams, added.nameGrams),
+                nameTokens.withChanges(removed.nameTokens, added.nameTokens),
+                nameTokenCount - removed.tokenCount + added.tokenCount,
+                names.withChanges(newDocuments, touched), prices.withChanges(newDocuments, touched),
+                facets.withChanges(new TermDictionary[]{brands, madeIns, categories},
+                        new TermDictionary[]{newBrands, newMadeIns, newCategories}, newDocuments, touched),
+                newVocabulary);
+    }
+
+    /**
+     * Extracts the filters of a free text query, matching every brand, country and category mentioned
+     * in it, a name substring when some product name contains the whole query, and a price range.
+     *
+     * @param searchQuery the query
+     * @return the parsed query
+     */
+    public ParsedQuery parse(String searchQuery) {
+        QueryVocabulary.Matches matches = vocabulary.match(Tokenizer.normalize(searchQuery));
+
+        String lowerCaseQuery = searchQuery.toLowerCase(Locale.ROOT);
+        String name = matchName(lowerCaseQuery).length > 0 ? lowerCaseQuery : null;
+
+        return new ParsedQuery(searchQuery, List.copyOf(matches.brands()), List.copyOf(matches.madeIns()),
+                List.copyOf(matches.categories()), name, PriceRange.parse(searchQuery), lowerCaseQuery.contains(CHEAP));
+    }
+
+    /**
+     * Runs a parsed query. Results come in catalog order, or by ascending price limited to
+     * {@link com.edig.searchengine.constants.ProductConstants#CHEAP_RESULT_LIMIT} when the cheapest were asked for.
+     *
+     * @param parsedQuery the parsed query
+     * @return the matching products
+     */
+    public List<IndexedProduct> execute(ParsedQuery parsedQuery) {
+        return execute(parsedQuery, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs a parsed query and returns one window of its results. Results come in catalog order starting
+     * after the given product id; when the cheapest were asked for, the window is ignored and the cheapest
+     * {@link com.edig.searchengine.constants.ProductConstants#CHEAP_RESULT_LIMIT} are returned.
+     *
+     * @param parsedQuery the parsed query
+     * @param afterId     only return products with a greater id
+     * @param limit       the maximum number of products
+     * @return the matching products
+     */
+    public List<IndexedProduct> execute(ParsedQuery parsedQuery, long afterId, int limit) {
+        List<int[]> filters = filters(parsedQuery);
+        if (filters.isEmpty()) {
+            if (parsedQuery.price() == null) {
+                return List.of();
+            }
+            if (parsedQuery.cheap()) {
+                return documents(prices.cheapest(parsedQuery.price(), CHEAP_RESULT_LIMIT));
+            }
+            return window(prices.within(parsedQuery.price()), null, afterId, limit);
+        }
+
+        if (parsedQuery.cheap()) {
+            return top(parsedQuery, SortOrder.PRICE, CHEAP_RESULT_LIMIT);
+        }
+        return window(PostingLists.intersectAll(filters), parsedQuery.price(), afterId, limit);
+    }
+
+    /**
+     * Runs a parsed query and keeps only its best {@code k} results in the given order, using a bounded
+     * heap so that memory and sorting cost grow with {@code k} rather than with the number of matches.
+     * Ties are broken in catalog order.
+     *
+     * @param parsedQuery the parsed query
+     * @param order       the result order
+     * @param k           the maximum number of results
+     * @return the best matching products, in order
+     */
+    public List<IndexedProduct> top(ParsedQuery parsedQuery, SortOrder order, int k) {
+        List<int[]> filters = filters(parsedQuery);
+        PriceRange price = parsedQuery.price();
+        if (filters.isEmpty() && price == null) {
+            return List.of();
+        }
+        if (filters.isEmpty() && order == SortOrder.PRICE) {
+            return documents(prices.cheapest(price, k));
+        }
+        if (filters.isEmpty() && order == SortOrder.PRICE_DESC) {
+            return documents(prices.mostExpensive(price, k));
+        }
+        int[] candidates = filters.isEmpty() ? prices.within(price) : PostingLists.intersectAll(filters);
+        if (order == SortOrder.CATALOG) {
+            return window(candidates, price, Long.MIN_VALUE, k);
+        }
+
+        RelevanceScorer scorer = order == SortOrder.RELEVANCE
+                ? new RelevanceScorer(parsedQuery, nameTokens, size, size == 0 ? 0 : (double) nameTokenCount / size)
+                : null;
+        PriorityQueue<ScoredOrdinal> heap = new PriorityQueue<>(k + 1, ScoredOrdinal.BEST_FIRST.reversed());
+        for (int ordinal : candidates) {
+            IndexedProduct product = documents[ordinal];
+            if (product == null || (price != null && !price.contains(product.price()))) {
+                continue;
+            }
+            double score = switch (order) {
+                case RELEVANCE -> scorer.score(product);
+                case PRICE -> -product.price();
+                default -> product.price();
+            };
+            if (heap.size() < k) {
+                heap.add(new ScoredOrdinal(ordinal, score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new ScoredOrdinal(ordinal, score));
+            }
+        }
+        List<ScoredOrdinal> best = new ArrayList<>(heap);
+        best.sort(ScoredOrdinal.BEST_FIRST);
+        List<IndexedProduct> result = new ArrayList<>(best.size());
+        best.forEach(scored -> result.add(documents[scored.ordinal()]));
+        return result;
+    }
+
+    /**
+     * Counts the products matching a parsed query per brand, country, category and price bucket.
+     * Counts cover every matching product, even when the cheapest were asked for.
+     *
+     * @param parsedQuery the parsed query
+     * @param limit       the maximum number of values per dimension
+     * @return the facet counts
+     */
+    public Facets facets(ParsedQuery parsedQuery, int limit) {
+        List<int[]> filters = filters(parsedQuery);
+        PriceRange price = parsedQuery.price();
+        int[] candidates = filters.isEmpty()
+                ? price == null ? PostingLists.EMPTY : prices.within(price)
+                : PostingLists.intersectAll(filters);
+        RoaringBitmap matches = new RoaringBitmap();
+        for (int ordinal : candidates) {
+            IndexedProduct product = documents[ordinal];
+            if (product != null && (price == null || price.contains(product.price()))) {
+                matches.add(ordinal);
+            }
+        }
+        return facets.count(matches, new TermDictionary[]{brands, madeIns, categories}, documents, limit);
+    }
+
+    /**
+     * Gets the posting list of every dimension filter of the query, the price range aside.
+     */
+    private List<int[]> filters(ParsedQuery parsedQuery) {
+        List<int[]> filters = new ArrayList<>();
+        parsedQuery.brands().forEach(brand -> filters.add(brands.get(brand)));
+        parsedQuery.madeIns().forEach(madeIn -> filters.add(madeIns.get(madeIn)));
+        parsedQuery.categories().forEach(category -> filters.add(categories.get(category)));
+        if (parsedQuery.name() != null) {
+            filters.add(matchName(parsedQuery.name()));
+        }
+        return filters;
+    }
+
+    /**
+     * Completes a prefix with the brands, countries, categories and product names starting with it,
+     * ranked by the number of products holding them, then shortest and alphabetically first. Only the
+     * first {@value #NAME_SCAN_LIMIT} matching names are ranked, which keeps short prefixes cheap.
+     *
+     * @param prefix the typed text
+     * @param limit  the maximum number of completions
+     * @return the completions, best first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = Tokenizer.normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(limit + 1, SUGGESTION_ORDER.reversed());
+        suggestTerms(brands, BRAND, IndexedProduct::brand, normalized, top, limit);
+        suggestTerms(madeIns, MADE_IN, IndexedProduct::madeIn, normalized, top, limit);
+        suggestTerms(categories, CATEGORY, IndexedProduct::categoryName, normalized, top, limit);
+
+        int end = Math.min(names.size(), names.startOf(normalized) + NAME_SCAN_LIMIT);
+        int i = names.startOf(normalized);
+        while (i < end && names.key(i).startsWith(normalized)) {
+            int first = i;
+            String key = names.key(i);
+            while (i < names.size() && names.key(i).equals(key)) {
+                i++;
+            }
+            offer(top, new Suggestion(documents[names.ordinal(first)].name(), NAME, i - first), limit);
+        }
+
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(SUGGESTION_ORDER);
+        return result;
+    }
+
+    /**
+     * Offers every term of the dictionary starting with the prefix, displayed as stored on the first
+     * product holding it.
+     */
+    private void suggestTerms(TermDictionary dictionary, String type, Function<IndexedProduct, String> field,
+                              String prefix, PriorityQueue<Suggestion> top, int limit) {
+        for (int i = dictionary.startOf(prefix); i < dictionary.size() && dictionary.term(i).startsWith(prefix); i++) {
+            int[] postings = dictionary.postings(i);
+            IndexedProduct holder = documents[postings[0]];
+            String text = holder != null ? field.apply(holder) : dictionary.term(i);
+            offer(top, new Suggestion(text, type, postings.length), limit);
+        }
+    }
+
+    /**
+     * Keeps the suggestion if it ranks among the best {@code limit}, the worst kept one being at the head.
+     */
+    private static void offer(PriorityQueue<Suggestion> top, Suggestion suggestion, int limit) {
+        if (top.size() < limit) {
+            top.add(suggestion);
+        } else if (SUGGESTION_ORDER.compare(suggestion, top.peek()) < 0) {
+            top.poll();
+            top.add(suggestion);
+        }
+    }
+
+    /**
+     * Collects the live products of a posting list priced within the range, skipping the ordinals
+     * up to the given id. Ordinals follow ids, so the start position is found by binary search.
+     */
+    private List<IndexedProduct> window(int[] ordinals, PriceRange price, long afterId, int limit) {
+        int firstOrdinal = Arrays.binarySearch(ids, afterId);
+        firstOrdinal = firstOrdinal >= 0 ? firstOrdinal + 1 : -firstOrdinal - 1;
+        int from = Arrays.binarySearch(ordinals, firstOrdinal);
+        from = from >= 0 ? from : -from - 1;
+
+        List<IndexedProduct> result = new ArrayList<>(Math.min(limit, ordinals.length - from));
+        for (int i = from; i < ordinals.length && result.size() < limit; i++) {
+            IndexedProduct product = documents[ordinals[i]];
+            if (product != null && (price == null || price.contains(product.price()))) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the products whose name contains the text. Candidates are the products whose name holds every
+     * trigram of the text, or for texts shorter than a trigram, some gram starting with it; each candidate
+     * is then verified against the full text.
+     */
+    private int[] matchName(String lowerCaseText) {
+        if (lowerCaseText.isBlank()) {
+            return PostingLists.EMPTY;
+        }
+        int[] candidates;
+        if (lowerCaseText.length() < Tokenizer.GRAM_LENGTH) {
+            candidates = nameGrams.prefix(lowerCaseText);
+        } else {
+            List<int[]> lists = new ArrayList<>();
+            for (String gram : Tokenizer.trigrams(lowerCaseText)) {
+                int[] list = nameGrams.get(gram);
+                if (list.length == 0) {
+                    return PostingLists.EMPTY;
+                }
+                lists.add(list);
+            }
+            candidates = PostingLists.intersectAll(lists);
+        }
+        IntList verified = new IntList();
+        for (int ordinal : candidates) {
+            IndexedProduct product = documents[ordinal];
+            if (product != null && product.name() != null
+                    && product.name().toLowerCase(Locale.ROOT).contains(lowerCaseText)) {
+                verified.add(ordinal);
+            }
+        }
+        return verified.toArray();
+    }
+
+    private List<IndexedProduct> documents(int[] ordinals) {
+        List<IndexedProduct> result = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            if (documents[ordinal] != null) {
+                result.add(documents[ordinal]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the version of the catalog this index reflects. Every build and every applied batch of
+     * additions, updates and deletions produces an index with a higher version.
+     *
+     * @return the catalog version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Gets the number of indexed products.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the indexed products.
+     *
+     * @return the products, in ascending id order
+     */
+    public List<IndexedProduct> products() {
+        List<IndexedProduct> products = new ArrayList<>(size);
+        for (IndexedProduct document : documents) {
+            if (document != null) {
+                products.add(document);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * A candidate and its score, higher being better; candidates are visited in ordinal order, so a later
+     * candidate only replaces a kept one with a strictly higher score.
+     */
+    private record ScoredOrdinal(int ordinal, double score) {
+        static final Comparator<ScoredOrdinal> BEST_FIRST = Comparator.comparingDouble(ScoredOrdinal::score).reversed()
+                .thenComparingInt(ScoredOrdinal::ordinal);
+    }
+
+    /**
+     * The dictionaries, posting lists and orderings of an index, which are all a snapshot has to store besides
+     * the products: the rest is cheaply derived from them.
+     */
+    record Structures(TermDictionary brands, TermDictionary madeIns, TermDictionary categories,
+                      TermDictionary nameGrams, TermDictionary nameTokens, long nameTokenCount,
+                      NameDictionary names, PriceIndex prices) {
+    }
+
+    /**
+     * Accumulates the ordinals of products per brand, country, category, name gram and name token,
+     * and the number of name tokens.
+     */
+    private static final class FieldPostings {
+        private final Map<String, IntList> brands = new HashMap<>();
+        private final Map<String, IntList> madeIns = new HashMap<>();
+        private final Map<String, IntList> categories = new HashMap<>();
+        private final Map<String, IntList> nameGrams = new HashMap<>();
+        private final Map<String, IntList> nameTokens = new HashMap<>();
+        private long tokenCount;
+
+        /**
+         * Adds a product under every value it holds.
+         */
+        void add(IndexedProduct product, int ordinal) {
+            addValue(brands, product.brand(), ordinal);
+            addValue(madeIns, product.madeIn(), ordinal);
+            addValue(categories, product.categoryName(), ordinal);
+            for (String gram : Tokenizer.grams(product.name())) {
+                nameGrams.computeIfAbsent(gram, key -> new IntList()).add(ordinal);
+            }
+            List<String> tokens = Tokenizer.tokenize(product.name());
+            tokenCount += tokens.size();
+            for (String token : new HashSet<>(tokens)) {
+                nameTokens.computeIfAbsent(token, key -> new IntList()).add(ordinal);
+            }
+        }
+
+        private static void addValue(Map<String, IntList> dictionary, String value, int ordinal) {
+            String normalized = Tokenizer.normalize(value);
+            if (!normalized.isEmpty()) {
+                dictionary.computeIfAbsent(normalized, key -> new IntList()).add(ordinal);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.edig.searchengine.search;
+
+import com.edig.searchengine.config.ReplicaRoutingDataSource;
+import com.edig.searchengine.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Owns the current {@link SearchIndex} snapshot and keeps it fresh.
+ * <p>
+ * Committed product changes are queued in a bounded queue. A scheduled applier drains the queue every
+ * {@code search.index.max-staleness-ms}, coalesces the changes per product, applies them as one batch and
+ * publishes the new snapshot by atomic swap, so readers never wait for writers. When the queue overflows,
+ * as during bulk imports, the pending changes are dropped in favour of a single full rebuild.
+ * Until the first build completes {@link #current()} is empty and callers fall back to the database.
+ * <p>
+ * The index is periodically written to an on-disk snapshot. The first build restores it from that snapshot
+ * and only replays the products modified after its high-water mark, plus the deletions found by comparing
+ * the indexed ids with the catalog's; without a usable snapshot it streams the whole catalog.
+ */
+@Slf4j
+@Service
+public class SearchIndexService {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicReference<SearchIndex> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean(true);
+    private final BlockingQueue<ProductChangedEvent> changes;
+    private final int maxBatchSize;
+    private final SearchSnapshotStore snapshotStore;
+    private final Duration replayOverlap;
+    private long snapshotVersion;
+
+    public SearchIndexService(ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                              SearchSnapshotStore snapshotStore,
+                              @Value("${search.index.queue-capacity:100000}") int queueCapacity,
+                              @Value("${search.index.max-batch-size:50000}") int maxBatchSize,
+                              @Value("${search.snapshot.replay-overlap-ms:60000}") long replayOverlapMillis) {
+        this.productRepository = productRepository;
+        this.snapshotStore = snapshotStore;
+        this.replayOverlap = Duration.ofMillis(replayOverlapMillis);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.changes = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Queues a committed product change.
+     *
+     * @param event the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!changes.offer(event)) {
+            rebuildRequested.set(true);
+        }
+    }
+
+    /**
+     * Requests a full rebuild on the next refresh.
+     */
+    public void requestRebuild() {
+        rebuildRequested.set(true);
+    }
+
+    /**
+     * Applies the queued changes, or rebuilds the whole index when requested.
+     */
+    @Scheduled(fixedDelayString = "${search.index.max-staleness-ms:500}")
+    public synchronized void refresh() {
+        try {
+            if (rebuildRequested.getAndSet(false)) {
+                changes.clear();
+                rebuild();
+            } else {
+                applyChanges();
+            }
+        } catch (RuntimeException e) {
+            log.error("Search index refresh failed, rebuilding on next run", e);
+            rebuildRequested.set(true);
+        }
+    }
+
+    private void rebuild() {
+        if (current.get() == null && restore()) {
+            return;
+        }
+        long start = System.nanoTime();
+        SearchIndex index = readFromPrimary(status -> {
+            try (Stream<IndexedProduct> products = productRepository.streamIndexedProducts()) {
+                return SearchIndex.build(products::iterator);
+            }
+        });
+        current.set(index);
+        log.info("Search index built with {} products in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private boolean restore() {
+        long start = System.nanoTime();
+        Optional<SearchSnapshotStore.Snapshot> snapshot = snapshotStore.read();
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+        try {
+            SearchIndex restored = snapshot.get().index();
+            Collection<ProductChangedEvent> replayed = readFromPrimary(status ->
+                    changesSince(restored, snapshot.get().highWaterMark().minus(replayOverlap)));
+            current.set(restored.apply(replayed));
+            log.info("Search index restored from snapshot with {} products and {} replayed changes in {} ms",
+                    current.get().size(), replayed.size(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Search index snapshot could not be replayed, rebuilding from the database", e);
+            return false;
+        }
+    }
+
+    /**
+     * Collects the changes to bring a restored index up to date: the products modified after the instant,
+     * and the deletion of every indexed product whose id is no longer in the catalog.
+     */
+    private Collection<ProductChangedEvent> changesSince(SearchIndex index, LocalDateTime since) {
+        Map<Long, ProductChangedEvent> latest = new TreeMap<>();
+        Iterator<IndexedProduct> indexed = index.products().iterator();
+        try (Stream<Long> ids = productRepository.streamIds()) {
+            Iterator<Long> catalog = ids.iterator();
+            long next = catalog.hasNext() ? catalog.next() : Long.MAX_VALUE;
+            while (indexed.hasNext()) {
+                long id = indexed.next().id();
+                while (next < id) {
+                    next = catalog.hasNext() ? catalog.next() : Long.MAX_VALUE;
+                }
+                if (next != id) {
+                    latest.put(id, ProductChangedEvent.deleted(id));
+                }
+            }
+        }
+        try (Stream<IndexedProduct> products = productRepository.streamIndexedProductsUpdatedAfter(since)) {
+            products.forEach(product -> latest.put(product.id(), ProductChangedEvent.upserted(product)));
+        }
+        return latest.values();
+    }
+
+    /**
+     * Writes the current index to the on-disk snapshot, after applying the queued changes, when it changed
+     * since the last snapshot. The high-water mark is read before the queue is drained so that it never
+     * runs ahead of the snapshot contents.
+     */
+    @Scheduled(initialDelayString = "${search.snapshot.interval-ms:600000}",
+            fixedDelayString = "${search.snapshot.interval-ms:600000}")
+    public void writeSnapshot() {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+        LocalDateTime highWaterMark = readFromPrimary(status -> productRepository.findLatestUpdate());
+        refresh();
+        SearchIndex index = current.get();
+        if (index == null || highWaterMark == null || index.version() == snapshotVersion) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            snapshotStore.write(index, highWaterMark);
+            snapshotVersion = index.version();
+            log.info("Search index snapshot written with {} products in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Search index snapshot could not be written", e);
+        }
+    }
+
+    private void applyChanges() {
+        SearchIndex index = current.get();
+        List<ProductChangedEvent> batch = new ArrayList<>();
+        while (changes.drainTo(batch, maxBatchSize) > 0) {
+            Map<Long, ProductChangedEvent> latest = new TreeMap<>();
+            for (ProductChangedEvent event : batch) {
+                latest.put(event.productId(), event);
+            }
+            index = index.apply(latest.values());
+            batch.clear();
+        }
+        if (index != current.get()) {
+            current.set(index);
+        }
+    }
+
+    /**
+     * Runs a read-only transaction on the primary database: the index follows the committed changes, which
+     * lagging read replicas may not have yet.
+     */
+    private <T> T readFromPrimary(TransactionCallback<T> action) {
+        boolean pinned = ReplicaRoutingDataSource.pinToPrimary(true);
+        try {
+            return readOnlyTransaction.execute(action);
+        } finally {
+            ReplicaRoutingDataSource.pinToPrimary(pinned);
+        }
+    }
+
+    /**
+     * Gets the current index snapshot.
+     *
+     * @return the index, empty while it is not built yet
+     */
+    public Optional<SearchIndex> current() {
+        return Optional.ofNullable(current.get());
+    }
+}
@@ -0,0 +1,139 @@
+package com.edig.searchengine.search;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the stages of a search: parsing the query, executing it and mapping the results.
+ * <p>
+ * Stage timers are tagged with the source answering the search ({@code index} or {@code database}) and
+ * the matched dimensions (e.g. {@code brand+cheap+price}), and publish percentiles and histograms.
+ * Searches slower than {@code search.slow-query-threshold-ms} are logged with their parsed query plan.
+ */
+@Slf4j
+@Component
+public class SearchMetrics {
+
+    public static final String SOURCE_INDEX = "index";
+    public static final String SOURCE_DATABASE = "database";
+    private static final String NO_DIMENSIONS = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryThresholdNanos;
+    private final DistributionSummary predicates;
+    private final DistributionSummary results;
+
+    public SearchMetrics(MeterRegistry meterRegistry, @Value("${search.slow-query-threshold-ms:100}") long slowQueryThresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.predicates = DistributionSummary.builder("search.predicates")
+                .description("Filters produced by a search query")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.results = DistributionSummary.builder("search.results")
+                .description("Products returned by a search query")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts tracing a search.
+     *
+     * @param source the source answering the search
+     * @param query  the query text
+     * @return the trace
+     */
+    public SearchTrace start(String source, String query) {
+        return new SearchTrace(source, query);
+    }
+
+    private Timer timer(String name, String source, String dimensions) {
+        return Timer.builder(name)
+                .tag("source", source)
+                .tag("dimensions", dimensions)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * The stages of one search. Each stage method is called once, in order.
+     */
+    public final class SearchTrace {
+        private final String source;
+        private final String query;
+        private final long start = System.nanoTime();
+        private long stageStart = start;
+        private String dimensions = NO_DIMENSIONS;
+        private Object plan;
+        private int rows;
+
+        private SearchTrace(String source, String query) {
+            this.source = source;
+            this.query = query;
+        }
+
+        /**
+         * Records the end of parsing.
+         *
+         * @param predicateDimensions the dimension of every filter produced, e.g. one "brand" per matched brand
+         * @param cheap               whether the cheapest products were asked for
+         * @param plan                the parsed query plan, logged for slow searches
+         */
+        public void parsed(List<String> predicateDimensions, boolean cheap, Object plan) {
+            this.plan = plan;
+            TreeSet<String> matched = new TreeSet<>(predicateDimensions);
+            if (cheap) {
+                matched.add("cheap");
+            }
+            if (!matched.isEmpty()) {
+                dimensions = String.join("+", matched);
+            }
+            matched.forEach(dimension -> meterRegistry.counter("search.dimension.matches", "dimension", dimension).increment());
+            if (predicateDimensions.isEmpty()) {
+                meterRegistry.counter("search.unmatched", "source", source).increment();
+            }
+            predicates.record(predicateDimensions.size());
+            stageStart = record("search.parse", stageStart);
+        }
+
+        /**
+         * Records the end of the query execution.
+         *
+         * @param rows the number of products found
+         */
+        public void executed(int rows) {
+            this.rows = rows;
+            results.record(rows);
+            stageStart = record("search.execute", stageStart);
+        }
+
+        /**
+         * Records the end of the result mapping and the whole search, and logs it when slow.
+         */
+        public void finished() {
+            long end = record("search.map", stageStart);
+            long total = end - start;
+            timer("search.total", source, dimensions).record(total, TimeUnit.NANOSECONDS);
+            if (total >= slowQueryThresholdNanos) {
+                log.warn("Slow search took {} ms from {} with {} rows: query '{}', plan {}",
+                        TimeUnit.NANOSECONDS.toMillis(total), source, rows, query, plan);
+            }
+        }
+
+        private long record(String stage, long from) {
+            long now = System.nanoTime();
+            timer(stage, source, dimensions).record(now - from, TimeUnit.NANOSECONDS);
+            return now;
+        }
+    }
+}
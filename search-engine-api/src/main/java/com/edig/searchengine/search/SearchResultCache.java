@@ -0,0 +1,61 @@
+package com.edig.searchengine.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded cache of search results computed from the index, keyed on the normalized query.
+ * <p>
+ * Every entry is tagged with the {@link SearchIndex#version() catalog version} it was computed on and is
+ * only served for that version, so any catalog change invalidates every entry at once without scanning;
+ * stale entries are overwritten or evicted. Entries are weighed by the number of results they hold and
+ * evicted with Caffeine's W-TinyLFU policy. Hits and misses are exported as {@code cache.*} metrics.
+ */
+@Component
+public class SearchResultCache {
+
+    private static final String CACHE_NAME = "searchResults";
+
+    private final Cache<String, Entry> cache;
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${search.result-cache.maximum-weight:1000000}") long maximumWeight) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String key, Entry entry) -> entry.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Gets the result cached for the key on the version of the index, computing and caching it when absent.
+     *
+     * @param searchIndex the index the result is computed on
+     * @param key         the normalized query, with any parameter shaping the result
+     * @param loader      computes the result
+     * @param weigher     weighs the result, typically by its number of products
+     * @param <T>         the result type, which must be immutable
+     * @return the result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(SearchIndex searchIndex, String key, Supplier<T> loader, ToIntFunction<T> weigher) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.version() == searchIndex.version()) {
+            return (T) entry.value();
+        }
+        T value = loader.get();
+        cache.put(key, new Entry(searchIndex.version(), value, weigher.applyAsInt(value) + 1));
+        return value;
+    }
+
+    private record Entry(long version, Object value, int weight) {
+    }
+}
@@ -0,0 +1,371 @@
+package com.edig.searchengine.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the on-disk snapshot of the search index, from which it is restored at startup instead
+ * of streaming the whole catalog from the database and indexing it again.
+ * <p>
+ * The snapshot is a versioned, column-oriented binary file. A header with the catalog high-water mark comes
+ * first, then the products: the ids and prices as primitive arrays, the brands, countries and categories as
+ * string dictionaries with one dictionary code per product, and the names as a length column followed by one
+ * UTF-8 blob. The index structures follow: every term dictionary as its sorted terms, the length of every
+ * posting list and the posting lists themselves, then the sorted name dictionary and the ordinals sorted by
+ * price. It is read through a memory-mapped {@link FileChannel}, and written to a temporary file that is then
+ * atomically moved over the previous snapshot, so a crash never leaves a torn file behind.
+ * <p>
+ * The restore does no tokenizing and no sorting: posting lists and orderings are bulk-copied from the mapping
+ * into the primitive arrays the queries run on, and only the facet bitmaps and the query vocabulary are derived
+ * again from the restored dictionaries. The index still lives on the heap once restored; the mapping saves the
+ * catalog scan and the indexing work at startup, not heap.
+ */
+@Slf4j
+@Component
+public class SearchSnapshotStore {
+
+    private static final int MAGIC = 0x53524348;
+    private static final int END_MAGIC = 0x454e4453;
+    private static final int FORMAT_VERSION = 2;
+    private static final int NULL = -1;
+
+    private final boolean enabled;
+    private final Path path;
+
+    public SearchSnapshotStore(@Value("${search.snapshot.enabled:true}") boolean enabled,
+                               @Value("${search.snapshot.path:data/search-index.snapshot}") Path path) {
+        this.enabled = enabled;
+        this.path = path;
+    }
+
+    /**
+     * The index restored from a snapshot and the catalog high-water mark it reflects.
+     *
+     * @param index         the index
+     * @param highWaterMark the latest product modification time when the snapshot was taken
+     */
+    public record Snapshot(SearchIndex index, LocalDateTime highWaterMark) {
+    }
+
+    /**
+     * Whether snapshots are read and written.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the snapshot.
+     *
+     * @return the snapshot, empty when it is disabled, missing, of another format version or corrupt
+     */
+    public Optional<Snapshot> read() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                log.warn("Ignoring search snapshot {} of {} bytes, larger than a single mapping", path, channel.size());
+                return Optional.empty();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.ofNullable(decode(buffer));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable search snapshot {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the index, replacing the previous one.
+     *
+     * @param index         the index
+     * @param highWaterMark the latest product modification time reflected by the index
+     * @throws IOException if the file cannot be written
+     */
+    public void write(SearchIndex index, LocalDateTime highWaterMark) throws IOException {
+        SearchIndex compacted = index.compacted();
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                encode(out, compacted, highWaterMark);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void encode(DataOutputStream out, SearchIndex index, LocalDateTime highWaterMark) throws IOException {
+        List<IndexedProduct> products = index.products();
+        int count = products.size();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(highWaterMark.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(highWaterMark.getNano());
+        out.writeInt(count);
+        for (IndexedProduct product : products) {
+            out.writeLong(product.id());
+        }
+        for (IndexedProduct product : products) {
+            out.writeFloat(product.price());
+        }
+        writeDictionaryColumn(out, products, IndexedProduct::brand);
+        writeDictionaryColumn(out, products, IndexedProduct::madeIn);
+        writeDictionaryColumn(out, products, IndexedProduct::categoryName);
+        List<byte[]> names = new ArrayList<>(count);
+        for (IndexedProduct product : products) {
+            byte[] name = product.name() == null ? null : product.name().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            out.writeInt(name == null ? NULL : name.length);
+        }
+        for (byte[] name : names) {
+            if (name != null) {
+                out.write(name);
+            }
+        }
+        SearchIndex.Structures structures = index.structures();
+        for (TermDictionary dictionary : List.of(structures.brands(), structures.madeIns(), structures.categories(),
+                structures.nameGrams(), structures.nameTokens())) {
+            writeTermDictionary(out, dictionary);
+        }
+        out.writeLong(structures.nameTokenCount());
+        NameDictionary nameKeys = structures.names();
+        out.writeInt(nameKeys.size());
+        for (int i = 0; i < nameKeys.size(); i++) {
+            writeString(out, nameKeys.key(i));
+        }
+        for (int i = 0; i < nameKeys.size(); i++) {
+            out.writeInt(nameKeys.ordinal(i));
+        }
+        PriceIndex prices = structures.prices();
+        out.writeInt(prices.size());
+        for (int i = 0; i < prices.size(); i++) {
+            out.writeInt(prices.ordinal(i));
+        }
+        out.writeInt(END_MAGIC);
+    }
+
+    private static void writeTermDictionary(DataOutputStream out, TermDictionary dictionary) throws IOException {
+        out.writeInt(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            writeString(out, dictionary.term(i));
+        }
+        for (int i = 0; i < dictionary.size(); i++) {
+            out.writeInt(dictionary.postings(i).length);
+        }
+        for (int i = 0; i < dictionary.size(); i++) {
+            for (int ordinal : dictionary.postings(i)) {
+                out.writeInt(ordinal);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDictionaryColumn(DataOutputStream out, List<IndexedProduct> products,
+                                              Function<IndexedProduct, String> column) throws IOException {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        int[] values = new int[products.size()];
+        for (int i = 0; i < values.length; i++) {
+            String value = column.apply(products.get(i));
+            values[i] = value == null ? NULL : codes.computeIfAbsent(value, key -> codes.size());
+        }
+        out.writeInt(codes.size());
+        for (String value : codes.keySet()) {
+            writeString(out, value);
+        }
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private Snapshot decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            log.warn("Ignoring search snapshot {}: not a snapshot file", path);
+            return null;
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            log.warn("Ignoring search snapshot {} of format version {}", path, formatVersion);
+            return null;
+        }
+        LocalDateTime highWaterMark = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        int count = buffer.getInt();
+
+        int ids = skip(buffer, count, Long.BYTES);
+        int prices = skip(buffer, count, Float.BYTES);
+        DictionaryColumn brands = DictionaryColumn.read(buffer, count);
+        DictionaryColumn madeIns = DictionaryColumn.read(buffer, count);
+        DictionaryColumn categories = DictionaryColumn.read(buffer, count);
+        int nameLengths = skip(buffer, count, Integer.BYTES);
+        long namesLength = 0;
+        for (int i = 0; i < count; i++) {
+            namesLength += Math.max(0, buffer.getInt(nameLengths + i * Integer.BYTES));
+        }
+        if (namesLength > buffer.remaining()) {
+            throw new IllegalStateException("Truncated search snapshot " + path);
+        }
+
+        IndexedProduct[] products = new IndexedProduct[count];
+        byte[] scratch = new byte[256];
+        int name = buffer.position();
+        for (int i = 0; i < count; i++) {
+            int nameLength = buffer.getInt(nameLengths + i * Integer.BYTES);
+            String productName = null;
+            if (nameLength != NULL) {
+                scratch = nameLength > scratch.length ? new byte[Math.max(nameLength, scratch.length * 2)] : scratch;
+                buffer.get(name, scratch, 0, nameLength);
+                productName = new String(scratch, 0, nameLength, StandardCharsets.UTF_8);
+                name += nameLength;
+            }
+            products[i] = new IndexedProduct(buffer.getLong(ids + i * Long.BYTES), productName, brands.get(buffer, i),
+                    madeIns.get(buffer, i), buffer.getFloat(prices + i * Float.BYTES), categories.get(buffer, i));
+        }
+        buffer.position(name);
+
+        TermDictionary brandTerms = readTermDictionary(buffer, count);
+        TermDictionary madeInTerms = readTermDictionary(buffer, count);
+        TermDictionary categoryTerms = readTermDictionary(buffer, count);
+        TermDictionary nameGrams = readTermDictionary(buffer, count);
+        TermDictionary nameTokens = readTermDictionary(buffer, count);
+        long nameTokenCount = buffer.getLong();
+        String[] nameKeys = new String[checkedLength(buffer.getInt(), count)];
+        for (int i = 0; i < nameKeys.length; i++) {
+            nameKeys[i] = readString(buffer);
+        }
+        int[] nameOrdinals = readOrdinals(buffer, nameKeys.length, count, false);
+        int[] priceOrdinals = readOrdinals(buffer, checkedLength(buffer.getInt(), count), count, false);
+        if (buffer.getInt() != END_MAGIC) {
+            throw new IllegalStateException("Truncated search snapshot " + path);
+        }
+        return new Snapshot(SearchIndex.restore(products, new SearchIndex.Structures(brandTerms, madeInTerms,
+                categoryTerms, nameGrams, nameTokens, nameTokenCount, NameDictionary.of(nameKeys, nameOrdinals),
+                PriceIndex.of(products, priceOrdinals))), highWaterMark);
+    }
+
+    /**
+     * Reads a term dictionary, its posting lists bulk-copied from the mapping.
+     */
+    private static TermDictionary readTermDictionary(ByteBuffer buffer, int count) {
+        String[] terms = new String[checkedLength(buffer.getInt(), buffer.remaining() / Integer.BYTES)];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = readString(buffer);
+        }
+        int[] lengths = readInts(buffer, terms.length);
+        int[][] postings = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            postings[i] = readOrdinals(buffer, checkedLength(lengths[i], count), count, true);
+        }
+        return TermDictionary.of(terms, postings);
+    }
+
+    /**
+     * Bulk-copies a column of ordinals from the mapping, checking that they are below the product count.
+     * Sorted columns, posting lists, are only checked at both ends.
+     */
+    private static int[] readOrdinals(ByteBuffer buffer, int length, int count, boolean sorted) {
+        int[] ordinals = readInts(buffer, length);
+        if (sorted && length > 0) {
+            checkOrdinal(ordinals[0], count);
+            checkOrdinal(ordinals[length - 1], count);
+        } else if (!sorted) {
+            for (int ordinal : ordinals) {
+                checkOrdinal(ordinal, count);
+            }
+        }
+        return ordinals;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining() / Integer.BYTES) {
+            throw new IllegalStateException("Truncated search snapshot column of " + length + " values");
+        }
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    private static void checkOrdinal(int ordinal, int count) {
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IllegalStateException("Corrupt search snapshot ordinal " + ordinal);
+        }
+    }
+
+    private static int checkedLength(int length, int max) {
+        if (length < 0 || length > max) {
+            throw new IllegalStateException("Corrupt search snapshot length " + length);
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Corrupt search snapshot value of " + length + " bytes");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips a column of fixed-size values.
+     *
+     * @return the offset of the column
+     */
+    private static int skip(ByteBuffer buffer, int count, int bytes) {
+        int offset = buffer.position();
+        buffer.position(Math.addExact(offset, Math.multiplyExact(count, bytes)));
+        return offset;
+    }
+
+    /**
+     * A dictionary read from the snapshot, and the offset of its code column, resolved in place.
+     */
+    private record DictionaryColumn(String[] dictionary, int codes) {
+
+        static DictionaryColumn read(ByteBuffer buffer, int count) {
+            int size = buffer.getInt();
+            if (size < 0 || size > count) {
+                throw new IllegalStateException("Corrupt search snapshot dictionary of " + size + " values");
+            }
+            String[] dictionary = new String[size];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer);
+            }
+            return new DictionaryColumn(dictionary, skip(buffer, count, Integer.BYTES));
+        }
+
+        String get(ByteBuffer buffer, int row) {
+            int code = buffer.getInt(codes + row * Integer.BYTES);
+            return code == NULL ? null : dictionary[code];
+        }
+    }
+}
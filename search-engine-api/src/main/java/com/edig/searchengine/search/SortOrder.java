@@ -0,0 +1,23 @@
+package com.edig.searchengine.search;
+
+/**
+ * The order of search results.
+ */
+public enum SortOrder {
+    /**
+     * Catalog order, by ascending product id.
+     */
+    CATALOG,
+    /**
+     * Best matches first, scoring name terms with BM25 and boosting exact brand, country and category matches.
+     */
+    RELEVANCE,
+    /**
+     * Cheapest first.
+     */
+    PRICE,
+    /**
+     * Most expensive first.
+     */
+    PRICE_DESC
+}
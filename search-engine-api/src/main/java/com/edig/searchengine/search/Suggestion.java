@@ -0,0 +1,11 @@
+package com.edig.searchengine.search;
+
+/**
+ * A typeahead completion.
+ *
+ * @param text  the completed value, as stored on a product
+ * @param type  the dimension it belongs to: name, brand, madeIn or category
+ * @param count the number of products holding it
+ */
+public record Suggestion(String text, String type, int count) {
+}
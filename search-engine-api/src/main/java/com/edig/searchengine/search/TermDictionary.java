@@ -0,0 +1,205 @@
+package com.edig.searchengine.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable sorted dictionary mapping terms to posting lists.
+ * Terms are kept in a sorted array so that exact and prefix lookups are binary searches.
+ */
+final class TermDictionary {
+
+    static final TermDictionary EMPTY = new TermDictionary(new String[0], new int[0][]);
+
+    private final String[] terms;
+    private final int[][] postings;
+
+    private TermDictionary(String[] terms, int[][] postings) {
+        this.terms = terms;
+        this.postings = postings;
+    }
+
+    /**
+     * Builds a dictionary from accumulated posting lists.
+     *
+     * @param accumulated the ordinals per term
+     * @return the dictionary
+     */
+    static TermDictionary build(Map<String, IntList> accumulated) {
+        String[] terms = accumulated.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[][] postings = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            postings[i] = accumulated.get(terms[i]).toSortedArray();
+        }
+        return new TermDictionary(terms, postings);
+    }
+
+    /**
+     * Wraps terms and posting lists that are already sorted, as read back from a snapshot.
+     *
+     * @param terms    the terms, sorted
+     * @param postings the sorted posting list of every term
+     * @return the dictionary
+     */
+    static TermDictionary of(String[] terms, int[][] postings) {
+        return new TermDictionary(terms, postings);
+    }
+
+    /**
+     * Returns a copy of this dictionary with ordinals removed from and added to some terms.
+     * Untouched posting lists are shared with this dictionary; terms left without postings are dropped.
+     *
+     * @param removed the ordinals to remove per term
+     * @param added   the ordinals to add per term
+     * @return the new dictionary
+     */
+    TermDictionary withChanges(Map<String, IntList> removed, Map<String, IntList> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        TreeSet<String> touched = new TreeSet<>(removed.keySet());
+        touched.addAll(added.keySet());
+        List<String> newTerms = new ArrayList<>(terms.length + added.size());
+        List<int[]> newPostings = new ArrayList<>(terms.length + added.size());
+        int i = 0;
+        for (String term : touched) {
+            while (i < terms.length && terms[i].compareTo(term) < 0) {
+                newTerms.add(terms[i]);
+                newPostings.add(postings[i++]);
+            }
+            int[] list = PostingLists.EMPTY;
+            if (i < terms.length && terms[i].equals(term)) {
+                list = postings[i++];
+            }
+            if (removed.containsKey(term)) {
+                list = PostingLists.difference(list, removed.get(term).toSortedArray());
+            }
+            if (added.containsKey(term)) {
+                list = PostingLists.union(list, added.get(term).toSortedArray());
+            }
+            if (list.length > 0) {
+                newTerms.add(term);
+                newPostings.add(list);
+            }
+        }
+        while (i < terms.length) {
+            newTerms.add(terms[i]);
+            newPostings.add(postings[i++]);
+        }
+        return new TermDictionary(newTerms.toArray(new String[0]), newPostings.toArray(new int[0][]));
+    }
+
+    /**
+     * Returns a copy of this dictionary with its ordinals renumbered by a mapping that keeps their order.
+     * Posting lists holding no renumbered ordinal are shared with this dictionary.
+     *
+     * @param newOrdinals  the new ordinal of every ordinal
+     * @param firstChanged the first ordinal whose number changes
+     * @return the new dictionary
+     */
+    TermDictionary withOrdinals(int[] newOrdinals, int firstChanged) {
+        int[][] newPostings = new int[postings.length][];
+        for (int i = 0; i < postings.length; i++) {
+            int[] list = postings[i];
+            if (list.length == 0 || list[list.length - 1] < firstChanged) {
+                newPostings[i] = list;
+                continue;
+            }
+            int from = Arrays.binarySearch(list, firstChanged);
+            int[] renumbered = list.clone();
+            for (int j = from >= 0 ? from : -from - 1; j < list.length; j++) {
+                renumbered[j] = newOrdinals[list[j]];
+            }
+            newPostings[i] = renumbered;
+        }
+        return new TermDictionary(terms, newPostings);
+    }
+
+    /**
+     * Gets the posting list of a term.
+     *
+     * @param term the term
+     * @return the posting list, empty when the term is unknown
+     */
+    int[] get(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? postings[index] : PostingLists.EMPTY;
+    }
+
+    boolean contains(String term) {
+        return Arrays.binarySearch(terms, term) >= 0;
+    }
+
+    /**
+     * Unions the posting lists of every term starting with the prefix.
+     *
+     * @param prefix the prefix
+     * @return the union of the matching posting lists
+     */
+    int[] prefix(String prefix) {
+        int from = startOf(prefix);
+        int to = from;
+        while (to < terms.length && terms[to].startsWith(prefix)) {
+            to++;
+        }
+        if (to - from <= 1) {
+            return to > from ? postings[from] : PostingLists.EMPTY;
+        }
+        BitSet ordinals = new BitSet();
+        for (int i = from; i < to; i++) {
+            for (int ordinal : postings[i]) {
+                ordinals.set(ordinal);
+            }
+        }
+        return ordinals.stream().toArray();
+    }
+
+    /**
+     * Finds the first position whose term is not lower than the prefix; the terms starting with the
+     * prefix follow it contiguously.
+     *
+     * @param prefix the prefix
+     * @return the start of the prefix range
+     */
+    int startOf(String prefix) {
+        int index = Arrays.binarySearch(terms, prefix);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    String term(int position) {
+        return terms[position];
+    }
+
+    int[] postings(int position) {
+        return postings[position];
+    }
+
+    /**
+     * Gets the terms, in sorted order.
+     *
+     * @return an unmodifiable view of the terms
+     */
+    List<String> terms() {
+        return Collections.unmodifiableList(Arrays.asList(terms));
+    }
+
+    /**
+     * Whether both dictionaries hold the same terms, regardless of their postings.
+     *
+     * @param other the other dictionary
+     * @return true if the term sets are equal
+     */
+    boolean hasSameTerms(TermDictionary other) {
+        return terms == other.terms || Arrays.equals(terms, other.terms);
+    }
+
+    int size() {
+        return terms.length;
+    }
+}
@@ -0,0 +1,90 @@
+package com.edig.searchengine.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text into lowercase alphanumeric tokens, or into the character grams of the substring index.
+ */
+final class Tokenizer {
+
+    static final int GRAM_LENGTH = 3;
+
+    private Tokenizer() {}
+
+    /**
+     * Lowercases and tokenizes the text.
+     *
+     * @param text the text
+     * @return the tokens, in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.isLetterOrDigit(lowerCase.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lowerCase.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * Normalizes a dictionary value (brand, country, category) to its tokens joined by single spaces.
+     *
+     * @param value the value
+     * @return the normalized value
+     */
+    static String normalize(String value) {
+        return String.join(" ", tokenize(value));
+    }
+
+    /**
+     * Gets the grams indexing a value for substring search: every trigram of the lowercased value, spaces
+     * and punctuation included, plus its last one and two characters so that short texts match at the end.
+     *
+     * @param value the value
+     * @return the distinct grams
+     */
+    static Set<String> grams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        String lowerCase = value.toLowerCase(Locale.ROOT);
+        grams.addAll(trigrams(lowerCase));
+        for (int i = Math.max(0, lowerCase.length() - GRAM_LENGTH + 1); i < lowerCase.length(); i++) {
+            grams.add(lowerCase.substring(i));
+        }
+        return grams;
+    }
+
+    /**
+     * Gets the distinct trigrams of an already lowercased text.
+     *
+     * @param lowerCaseText the text
+     * @return the trigrams, empty for texts shorter than a trigram
+     */
+    static Set<String> trigrams(String lowerCaseText) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseText.length(); i++) {
+            trigrams.add(lowerCaseText.substring(i, i + GRAM_LENGTH));
+        }
+        return trigrams;
+    }
+}
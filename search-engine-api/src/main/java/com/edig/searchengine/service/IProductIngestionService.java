@@ -0,0 +1,27 @@
+package com.edig.searchengine.service;
+
+import com.edig.searchengine.dto.BulkIngestionResultDTO;
+
+import java.io.InputStream;
+
+/**
+ * The interface Product ingestion service.
+ */
+public interface IProductIngestionService {
+
+    /**
+     * Ingest products from a JSON array.
+     *
+     * @param inputStream the JSON payload
+     * @return the ingestion result
+     */
+    BulkIngestionResultDTO ingestJson(InputStream inputStream);
+
+    /**
+     * Ingest products from CSV.
+     *
+     * @param inputStream the CSV payload
+     * @return the ingestion result
+     */
+    BulkIngestionResultDTO ingestCsv(InputStream inputStream);
+}
@@ -1,9 +1,16 @@
 package com.edig.searchengine.service;
 
+import com.edig.searchengine.dto.BatchSearchQueryDTO;
+import com.edig.searchengine.dto.BatchSearchResultDTO;
 import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.dto.ProductPageDTO;
+import com.edig.searchengine.dto.SearchResultDTO;
+import com.edig.searchengine.dto.SuggestionDTO;
 import com.edig.searchengine.entity.Category;
+import com.edig.searchengine.search.SortOrder;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The interface Product service.
@@ -32,6 +39,22 @@ public interface IProductService {
      */
     List<ProductDTO> listAllProducts();
 
+    /**
+     * List products page.
+     *
+     * @param cursor the continuation token of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    ProductPageDTO listProductsPage(String cursor, int size);
+
+    /**
+     * Streams all products.
+     *
+     * @param consumer the consumer receiving each product
+     */
+    void streamAllProducts(Consumer<ProductDTO> consumer);
+
     /**
      * List products by category list.
      *
@@ -92,4 +115,52 @@ public interface IProductService {
      * @return the list
      */
     List<ProductDTO> searchProducts(String query);
+
+    /**
+     * Search the best products in the given order.
+     *
+     * @param query the query
+     * @param sort  the result order
+     * @param k     the maximum number of results, or null for the default
+     * @return the list
+     */
+    List<ProductDTO> searchProducts(String query, SortOrder sort, Integer k);
+
+    /**
+     * Search the best products in the given order, with the facet counts of every matching product.
+     *
+     * @param query the query
+     * @param sort  the result order
+     * @param k     the maximum number of results, or null for the default
+     * @return the products and their facets, which are absent while the search index is not built yet
+     */
+    SearchResultDTO searchProductsWithFacets(String query, SortOrder sort, Integer k);
+
+    /**
+     * Search many queries at once, in parallel, each one failing on its own.
+     *
+     * @param queries the queries
+     * @return one result per query, in order
+     */
+    List<BatchSearchResultDTO> searchBatch(List<BatchSearchQueryDTO> queries);
+
+    /**
+     * Search products page.
+     *
+     * @param query  the query
+     * @param cursor the continuation token of the previous page, or null for the first page
+     * @param size   the page size
+     * @param facets whether to add the facet counts of every matching product
+     * @return the page
+     */
+    ProductPageDTO searchProductsPage(String query, String cursor, int size, boolean facets);
+
+    /**
+     * Suggest completions of a typed prefix, from the in-memory index only.
+     *
+     * @param prefix the typed text
+     * @param limit  the maximum number of completions
+     * @return the completions, best first, empty while the index is not built yet
+     */
+    List<SuggestionDTO> suggest(String prefix, int limit);
 }
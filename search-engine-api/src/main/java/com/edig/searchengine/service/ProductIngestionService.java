@@ -0,0 +1,184 @@
+package com.edig.searchengine.service;
+
+import com.edig.searchengine.dto.BulkIngestionResultDTO;
+import com.edig.searchengine.dto.ChunkResultDTO;
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.entity.Category;
+import com.edig.searchengine.ingestion.ProductCsvReader;
+import com.edig.searchengine.ingestion.ProductJsonReader;
+import com.edig.searchengine.repository.CategoryRepository;
+import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.search.ProductChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.*;
+
+/**
+ * Loads large product feeds chunk by chunk. Each chunk is validated, checked for duplicates with a single
+ * name lookup, resolved against the cached categories and written with one batched JDBC insert, in its
+ * own transaction.
+ * <p>
+ * The name lookup cannot see every duplicate: the unique index also compares names accent-insensitively,
+ * and a concurrent insert can land in between. When the batch hits the index, it is rolled back to a
+ * savepoint and the chunk is inserted row by row, each row behind its own savepoint, so that only the
+ * duplicates are rejected and the rest of the chunk and the following chunks still go in.
+ */
+@Slf4j
+@Service
+public class ProductIngestionService implements IProductIngestionService {
+
+    private static final String INSERT_PRODUCT = "insert into product (name, brand, made_in, price, category_id) values (?, ?, ?, ?, ?)";
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public ProductIngestionService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                                   JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   ApplicationEventPublisher eventPublisher, Validator validator, ObjectMapper objectMapper,
+                                   @Value("${ingestion.chunk-size:1000}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Ingest products from a JSON array.
+     *
+     * @param inputStream the JSON payload
+     * @return the ingestion result
+     */
+    @Override
+    public BulkIngestionResultDTO ingestJson(InputStream inputStream) {
+        return ingest(new ProductJsonReader(objectMapper, inputStream));
+    }
+
+    /**
+     * Ingest products from CSV.
+     *
+     * @param inputStream the CSV payload
+     * @return the ingestion result
+     */
+    @Override
+    public BulkIngestionResultDTO ingestCsv(InputStream inputStream) {
+        return ingest(new ProductCsvReader(inputStream));
+    }
+
+    private BulkIngestionResultDTO ingest(Iterator<ProductDTO> products) {
+        long start = System.nanoTime();
+        List<ChunkResultDTO> chunks = new ArrayList<>();
+        List<ProductDTO> chunk = new ArrayList<>(chunkSize);
+        while (products.hasNext()) {
+            chunk.add(products.next());
+            if (chunk.size() == chunkSize) {
+                chunks.add(ingestChunk(chunks.size(), chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(ingestChunk(chunks.size(), chunk));
+        }
+
+        long accepted = chunks.stream().mapToLong(ChunkResultDTO::getAccepted).sum();
+        long rejected = chunks.stream().mapToLong(ChunkResultDTO::getRejected).sum();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        double productsPerSecond = elapsedMillis == 0 ? accepted : accepted * 1000.0 / elapsedMillis;
+        log.info("Bulk ingestion of {} products: {} accepted, {} rejected in {} ms", accepted + rejected, accepted, rejected, elapsedMillis);
+        return new BulkIngestionResultDTO(accepted, rejected, elapsedMillis, productsPerSecond, chunks);
+    }
+
+    private ChunkResultDTO ingestChunk(int index, List<ProductDTO> chunk) {
+        long start = System.nanoTime();
+        Integer accepted = transactionTemplate.execute(status -> {
+            Map<String, ProductDTO> candidates = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (ProductDTO product : chunk) {
+                if (validator.validate(product).isEmpty()) {
+                    candidates.putIfAbsent(product.getName(), product);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+            productRepository.findExistingNames(candidates.keySet()).forEach(candidates::remove);
+
+            List<Object[]> rows = new ArrayList<>(candidates.size());
+            List<String> names = new ArrayList<>(candidates.size());
+            for (ProductDTO product : candidates.values()) {
+                Category category = categoryRepository.findCategoryByName(product.getCategoryName());
+                if (category != null) {
+                    rows.add(new Object[]{product.getName(), product.getBrand(), product.getMadeIn(), product.getPrice(), category.getId()});
+                    names.add(product.getName());
+                }
+            }
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<String> inserted = insert(rows, names);
+            if (inserted.isEmpty()) {
+                return 0;
+            }
+            Set<String> insertedNames = new HashSet<>(inserted);
+            productRepository.findIndexedProductsByNameIn(inserted).stream()
+                    .filter(product -> insertedNames.contains(product.name()))
+                    .forEach(product -> eventPublisher.publishEvent(ProductChangedEvent.upserted(product)));
+            return inserted.size();
+        });
+        int acceptedCount = accepted == null ? 0 : accepted;
+        return new ChunkResultDTO(index, acceptedCount, chunk.size() - acceptedCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Inserts the rows with one batch, or row by row when the batch hits the unique name index. The
+     * savepoints are taken on the JDBC connection of the transaction, as the JPA transaction manager
+     * does not offer them.
+     *
+     * @return the names of the inserted rows
+     */
+    private List<String> insert(List<Object[]> rows, List<String> names) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            Savepoint batch = connection.setSavepoint();
+            try {
+                jdbcTemplate.batchUpdate(INSERT_PRODUCT, rows);
+                connection.releaseSavepoint(batch);
+                return names;
+            } catch (DuplicateKeyException e) {
+                connection.rollback(batch);
+            }
+            List<String> inserted = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                Savepoint row = connection.setSavepoint();
+                try {
+                    jdbcTemplate.update(INSERT_PRODUCT, rows.get(i));
+                    connection.releaseSavepoint(row);
+                    inserted.add(names.get(i));
+                } catch (DuplicateKeyException e) {
+                    connection.rollback(row);
+                    log.debug("Rejected product {}, duplicating an existing name", names.get(i));
+                }
+            }
+            return inserted;
+        });
+    }
+}
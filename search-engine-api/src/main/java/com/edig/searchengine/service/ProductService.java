@@ -1,35 +1,89 @@
 package com.edig.searchengine.service;
 
+import com.edig.searchengine.config.ReplicaRoutingDataSource;
+import com.edig.searchengine.dto.BatchSearchQueryDTO;
+import com.edig.searchengine.dto.BatchSearchResultDTO;
+import com.edig.searchengine.dto.FacetsDTO;
 import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.dto.ProductPageDTO;
+import com.edig.searchengine.dto.SearchResultDTO;
+import com.edig.searchengine.dto.SuggestionDTO;
 import com.edig.searchengine.entity.Category;
 import com.edig.searchengine.entity.Product;
 import com.edig.searchengine.exceptions.CategoryNotExistsException;
+import com.edig.searchengine.exceptions.InvalidCursorException;
 import com.edig.searchengine.exceptions.ProductAlreadyExistsException;
 import com.edig.searchengine.exceptions.ProductNotFoundException;
 import com.edig.searchengine.mapper.ProductMapper;
 import com.edig.searchengine.repository.CategoryRepository;
 import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.repository.ProductSearchCriteria;
+import com.edig.searchengine.repository.ProductSearchQueries;
+import com.edig.searchengine.search.FacetCount;
+import com.edig.searchengine.search.Facets;
+import com.edig.searchengine.search.IndexedProduct;
+import com.edig.searchengine.search.ParsedQuery;
+import com.edig.searchengine.search.PriceRange;
+import com.edig.searchengine.search.QueryVocabulary;
+import com.edig.searchengine.search.SearchBatchExecutor;
+import com.edig.searchengine.search.SearchIndex;
+import com.edig.searchengine.search.SearchIndexService;
+import com.edig.searchengine.search.SearchMetrics;
+import com.edig.searchengine.search.SearchResultCache;
+import com.edig.searchengine.search.SortOrder;
 import jakarta.persistence.criteria.Predicate;
-import lombok.AllArgsConstructor;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.edig.searchengine.constants.ProductConstants.*;
 
 @Service
-@AllArgsConstructor
 public class ProductService implements IProductService {
 
     private ProductRepository productRepository;
     private CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
+    private final SearchIndexService searchIndexService;
+    private final SearchMetrics searchMetrics;
+    private final SearchResultCache searchResultCache;
+    private final SearchBatchExecutor searchBatchExecutor;
+    private final ProductSearchQueries productSearchQueries;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          ProductMapper productMapper, SearchIndexService searchIndexService, SearchMetrics searchMetrics,
+                          SearchResultCache searchResultCache, SearchBatchExecutor searchBatchExecutor,
+                          ProductSearchQueries productSearchQueries, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.productMapper = productMapper;
+        this.searchIndexService = searchIndexService;
+        this.searchMetrics = searchMetrics;
+        this.searchResultCache = searchResultCache;
+        this.searchBatchExecutor = searchBatchExecutor;
+        this.productSearchQueries = productSearchQueries;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     /**
      * Add product.
@@ -65,15 +119,43 @@ public class ProductService implements IProductService {
      * @return the list
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> listAllProducts() {
-        List<Product> products = productRepository.findAll();
-        List<ProductDTO> productDTOs = new ArrayList<>();
-        for (Product product : products) {
+        List<IndexedProduct> products = productRepository.findIndexedProducts();
+        List<ProductDTO> productDTOs = new ArrayList<>(products.size());
+        for (IndexedProduct product : products) {
             productDTOs.add(productMapper.toProductDTO(product));
         }
         return productDTOs;
     }
 
+    /**
+     * List products page, using keyset pagination on the product id.
+     *
+     * @param cursor the continuation token of the previous page, or null for the first page
+     * @param size   the page size
+     * @return the page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageDTO listProductsPage(String cursor, int size) {
+        int pageSize = pageSize(size);
+        return toPage(productRepository.findIndexedProductsAfter(decodeCursor(cursor), Limit.of(pageSize + 1)), pageSize, true);
+    }
+
+    /**
+     * Streams all products, in id order, straight from the database cursor.
+     *
+     * @param consumer the consumer receiving each product
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<ProductDTO> consumer) {
+        try (Stream<IndexedProduct> products = productRepository.streamIndexedProducts()) {
+            products.map(productMapper::toProductDTO).forEach(consumer);
+        }
+    }
+
     /**
      * List products by category list.
      *
@@ -81,16 +163,18 @@ public class ProductService implements IProductService {
      * @return the list
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> listProductsByCategory(String categoryName) {
         Category category = categoryRepository.findCategoryByName(categoryName);
-        List<Product> products = productRepository.findByCategory(category).orElseThrow(
-                () -> new CategoryNotExistsException("Category with name " + categoryName + " not found")
-        );
+        if (category == null) {
+            throw new CategoryNotExistsException("Category with name " + categoryName + " not found");
+        }
+        List<IndexedProduct> products = productRepository.findIndexedProductsByCategory(category);
         if (products.isEmpty()) {
             throw new ProductNotFoundException("No products found for category " + categoryName);
         }
-        List<ProductDTO> productDTOs = new ArrayList<>();
-        for (Product product : products) {
+        List<ProductDTO> productDTOs = new ArrayList<>(products.size());
+        for (IndexedProduct product : products) {
             productDTOs.add(productMapper.toProductDTO(product));
         }
         return productDTOs;
@@ -104,6 +188,7 @@ public class ProductService implements IProductService {
      * @return the boolean
      */
     @Override
+    @CacheEvict(cacheNames = PRODUCT_BY_NAME_CACHE, key = "#productName")
     public boolean deleteProduct(String productName) {
         Product product = getProduct(productName);
         productRepository.deleteProductById(product.getId());
@@ -123,6 +208,7 @@ public class ProductService implements IProductService {
      * @param productDTO the product dto
      */
     @Override
+    @CacheEvict(cacheNames = PRODUCT_BY_NAME_CACHE, key = "#productDTO.name")
     public boolean updateProduct(ProductDTO productDTO) {
         Product existingProduct = getProduct(productDTO.getName());
 
@@ -144,8 +230,12 @@ public class ProductService implements IProductService {
      * @return the product by name
      */
     @Override
+    @Cacheable(cacheNames = PRODUCT_BY_NAME_CACHE, key = "#name")
+    @Transactional(readOnly = true)
     public ProductDTO getProductByName(String name) {
-        Product product = getProduct(name);
+        IndexedProduct product = ReplicaRoutingDataSource.readFromPrimary(() -> productRepository.findIndexedProductByName(name)).orElseThrow(
+                () -> new ProductNotFoundException("Product with name " + name + " not found")
+        );
         return productMapper.toProductDTO(product);
     }
 
@@ -155,6 +245,7 @@ public class ProductService implements IProductService {
      * @return the categories
      */
     @Override
+    @Transactional(readOnly = true)
     public List<Category> getCategories() {
         return categoryRepository.findAll();
     }
@@ -169,88 +260,314 @@ public class ProductService implements IProductService {
      * @return the list
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductDTO> findProducts(String name, Float price, String madeIn, String category) {
         return List.of();
     }
 
     /**
-     * Search products list.
+     * Search products list. Served from the in-memory search index, or from the database while the
+     * index is not built yet.
      *
      * @param searchQuery the query
      * @return the list
      */
     @Override
     public List<ProductDTO> searchProducts(String searchQuery) {
+        return searchProducts(searchQuery, SortOrder.CATALOG, null);
+    }
 
-        String searchQueryLowerCase = searchQuery.toLowerCase();
-
-        List<String> countries = productRepository.findDistinctMadeIn();
-        List<String> brands = productRepository.findDistinctBrand();
-        List<String> categories = productRepository.findDistinctCategoryNames();
-        List<String> names = productRepository.findDistinctByName();
+    /**
+     * Search the best products. Unless the cheapest were asked for, results are sorted in the given order
+     * and limited to k, which defaults to every match in catalog order and to
+     * {@link com.edig.searchengine.constants.ProductConstants#DEFAULT_TOP_K} otherwise. Relevance is only
+     * scored by the in-memory index; the database fallback returns catalog order instead.
+     * Searches answered by the index hold no database connection; only the fallback opens a read-only transaction.
+     *
+     * @param searchQuery the query
+     * @param sort        the result order
+     * @param k           the maximum number of results, or null for the default
+     * @return the list
+     */
+    @Override
+    public List<ProductDTO> searchProducts(String searchQuery, SortOrder sort, Integer k) {
+        return search(searchIndexService.current(), searchQuery, false, sort, k).getProducts();
+    }
 
+    /**
+     * Search the best products with the facet counts of every matching product, which are only computed
+     * from the in-memory search index.
+     *
+     * @param searchQuery the query
+     * @param sort        the result order
+     * @param k           the maximum number of results, or null for the default
+     * @return the products and their facets
+     */
+    @Override
+    public SearchResultDTO searchProductsWithFacets(String searchQuery, SortOrder sort, Integer k) {
+        return search(searchIndexService.current(), searchQuery, true, sort, k);
+    }
 
-        boolean cheap = false;
+    /**
+     * Search many queries at once, in parallel. Every query is parsed and run against the same index
+     * snapshot, and fails on its own: a query that finds nothing, errors or runs past the batch timeout
+     * gets an error status while the other queries still return their products.
+     *
+     * @param queries the queries
+     * @return one result per query, in order
+     */
+    @Override
+    public List<BatchSearchResultDTO> searchBatch(List<BatchSearchQueryDTO> queries) {
+        Optional<SearchIndex> searchIndex = searchIndexService.current();
+        List<Callable<SearchResultDTO>> tasks = queries.stream()
+                .<Callable<SearchResultDTO>>map(query -> () -> search(searchIndex, query.getQuery(), query.isFacets(),
+                        query.getSort() == null ? SortOrder.CATALOG : query.getSort(), query.getK()))
+                .toList();
+        List<SearchBatchExecutor.Outcome<SearchResultDTO>> outcomes = searchBatchExecutor.invokeAll(tasks);
+        List<BatchSearchResultDTO> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            String query = queries.get(i).getQuery();
+            SearchBatchExecutor.Outcome<SearchResultDTO> outcome = outcomes.get(i);
+            if (outcome.failure() == null) {
+                results.add(new BatchSearchResultDTO(query, HttpStatus.OK, outcome.value().getProducts(), outcome.value().getFacets(), null));
+            } else {
+                results.add(new BatchSearchResultDTO(query, batchFailureStatus(outcome.failure()), null, null,
+                        outcome.failure() instanceof TimeoutException ? STATUS_MESSAGE_SEARCH_TIMEOUT : outcome.failure().getMessage()));
+            }
+        }
+        return results;
+    }
 
-        Specification<Product> spec = Specification.where(null);
+    /**
+     * Maps the failure of one search of a batch to the status the single search endpoint would return.
+     */
+    private static HttpStatus batchFailureStatus(Throwable failure) {
+        if (failure instanceof ProductNotFoundException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (failure instanceof TimeoutException) {
+            return HttpStatus.GATEWAY_TIMEOUT;
+        }
+        if (failure instanceof RejectedExecutionException || failure instanceof CannotCreateTransactionException
+                || failure instanceof DataAccessResourceFailureException || failure instanceof QueryTimeoutException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
 
-        for (String country : countries) {
-            if (searchQueryLowerCase.contains(country.toLowerCase())) {
-                spec = spec.and((root, query, cb) -> cb.like(root.get(MADE_IN), country));
-            }
+    private SearchResultDTO search(Optional<SearchIndex> searchIndex, String searchQuery, boolean withFacets, SortOrder sort, Integer k) {
+        Integer topK = k != null ? Integer.valueOf(Math.max(1, Math.min(k, MAX_TOP_K)))
+                : sort == SortOrder.CATALOG ? null : Integer.valueOf(DEFAULT_TOP_K);
+        if (searchIndex.isEmpty()) {
+            return new SearchResultDTO(readOnlyTransaction.execute(status -> searchProductsInDatabase(searchQuery, sort, topK)), null);
         }
-        for (String brand : brands) {
-            if (searchQueryLowerCase.contains(brand.toLowerCase())) {
-                spec = spec.and((root, query, cb) -> cb.like(root.get(BRAND), brand));
-            }
+        SearchMetrics.SearchTrace trace = searchMetrics.start(SearchMetrics.SOURCE_INDEX, searchQuery);
+        ParsedQuery parsedQuery = searchIndex.get().parse(searchQuery);
+        trace.parsed(parsedQuery.predicates(), parsedQuery.cheap(), parsedQuery);
+        if (parsedQuery.isEmpty()) {
+            throw new ProductNotFoundException(STATUS_MESSAGE_NOT_FOUND);
+        }
+        List<IndexedProduct> products;
+        if (parsedQuery.cheap() || topK == null) {
+            products = searchResultCache.get(searchIndex.get(), parsedQuery.normalized(),
+                    () -> List.copyOf(searchIndex.get().execute(parsedQuery)), List::size);
+        } else {
+            String key = sort == SortOrder.RELEVANCE ? parsedQuery.normalizedWithTerms() : parsedQuery.normalized();
+            products = searchResultCache.get(searchIndex.get(), key + "|sort=" + sort + "|k=" + topK,
+                    () -> List.copyOf(searchIndex.get().top(parsedQuery, sort, topK)), List::size);
         }
+        trace.executed(products.size());
+        List<ProductDTO> productDTOs = products.stream().map(productMapper::toProductDTO).collect(Collectors.toList());
+        FacetsDTO facets = withFacets ? toFacetsDTO(facets(searchIndex.get(), parsedQuery)) : null;
+        trace.finished();
+        return new SearchResultDTO(productDTOs, facets);
+    }
 
-        for (String category : categories) {
-            if (searchQueryLowerCase.contains(category.toLowerCase())) {
-                spec = spec.and((root, query, cb) -> cb.like(root.get(CATEGORY).get(NAME), category));
-            }
+    private List<ProductDTO> searchProductsInDatabase(String searchQuery, SortOrder sort, Integer topK) {
+        SearchMetrics.SearchTrace trace = searchMetrics.start(SearchMetrics.SOURCE_DATABASE, searchQuery);
+        List<String> predicates = new ArrayList<>();
+        boolean cheap = searchQuery.toLowerCase().contains(CHEAP);
+        ProductSearchCriteria criteria = buildSearchCriteria(searchQuery, predicates);
+        trace.parsed(predicates, cheap, criteria);
+        List<IndexedProduct> result;
+        if (cheap) {
+            result = productSearchQueries.find(criteria, null, ProductSearchQueries.Order.PRICE, CHEAP_RESULT_LIMIT);
+        } else if (topK == null) {
+            result = productSearchQueries.find(criteria, null, ProductSearchQueries.Order.UNSORTED, null);
+        } else {
+            ProductSearchQueries.Order order = switch (sort) {
+                case PRICE -> ProductSearchQueries.Order.PRICE_THEN_ID;
+                case PRICE_DESC -> ProductSearchQueries.Order.PRICE_DESC_THEN_ID;
+                default -> ProductSearchQueries.Order.ID;
+            };
+            result = productSearchQueries.find(criteria, null, order, topK);
         }
-        for (String producto : names) {
-            if (producto.toLowerCase().contains(searchQueryLowerCase)) {
-                spec = spec.and((root, query, cb) -> cb.like(root.get(NAME), "%" + searchQuery + "%"));
-            }
+        trace.executed(result.size());
+        List<ProductDTO> productDTOs = result.stream().map(productMapper::toProductDTO).collect(Collectors.toList());
+        trace.finished();
+        return productDTOs;
+    }
+
+    /**
+     * Search products page. Results come in id order and are resumed after the cursor, except for
+     * cheap searches which return the cheapest products in a single page.
+     *
+     * @param searchQuery the query
+     * @param cursor      the continuation token of the previous page, or null for the first page
+     * @param size        the page size
+     * @param facets      whether to add the facet counts of every matching product, only computed from the index
+     * @return the page
+     */
+    @Override
+    public ProductPageDTO searchProductsPage(String searchQuery, String cursor, int size, boolean facets) {
+        long afterId = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        Optional<SearchIndex> searchIndex = searchIndexService.current();
+        if (searchIndex.isEmpty()) {
+            return readOnlyTransaction.execute(status -> searchProductsPageInDatabase(searchQuery, afterId, pageSize));
+        }
+        SearchMetrics.SearchTrace trace = searchMetrics.start(SearchMetrics.SOURCE_INDEX, searchQuery);
+        ParsedQuery parsedQuery = searchIndex.get().parse(searchQuery);
+        trace.parsed(parsedQuery.predicates(), parsedQuery.cheap(), parsedQuery);
+        if (parsedQuery.isEmpty()) {
+            throw new ProductNotFoundException(STATUS_MESSAGE_NOT_FOUND);
         }
+        List<IndexedProduct> products = searchResultCache.get(searchIndex.get(),
+                parsedQuery.normalized() + "|after=" + afterId + "|limit=" + (pageSize + 1),
+                () -> List.copyOf(searchIndex.get().execute(parsedQuery, afterId, pageSize + 1)), List::size);
+        trace.executed(products.size());
+        ProductPageDTO page = toPage(products, pageSize, !parsedQuery.cheap());
+        if (facets) {
+            page.setFacets(toFacetsDTO(facets(searchIndex.get(), parsedQuery)));
+        }
+        trace.finished();
+        return page;
+    }
 
-        Pattern pattern = Pattern.compile("\\$?\\d+");
-        Matcher matcher = pattern.matcher(searchQuery);
-        if (matcher.find()) {
-            float price = 0;
-            try {
-                if (matcher.group().startsWith(MONEY_SYMBOL)) {
-                    price = Float.parseFloat(matcher.group().substring(1));
-
-                } else {
-                    price = Float.parseFloat(matcher.group());
-                }
-            } catch (NumberFormatException e) {
-                //Ignore
-            }
-            float finalPrice = price;
-            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get(PRICE), finalPrice));
+    /**
+     * Suggest completions of a typed prefix, from the in-memory index only.
+     *
+     * @param prefix the typed text
+     * @param limit  the maximum number of completions
+     * @return the completions, best first, empty while the index is not built yet
+     */
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        int suggestionLimit = Math.max(1, Math.min(limit, MAX_SUGGESTION_LIMIT));
+        return searchIndexService.current()
+                .map(searchIndex -> searchIndex.suggest(prefix, suggestionLimit).stream()
+                        .map(suggestion -> new SuggestionDTO(suggestion.text(), suggestion.type(), suggestion.count()))
+                        .toList())
+                .orElse(List.of());
+    }
+
+    private ProductPageDTO searchProductsPageInDatabase(String searchQuery, long afterId, int pageSize) {
+        SearchMetrics.SearchTrace trace = searchMetrics.start(SearchMetrics.SOURCE_DATABASE, searchQuery);
+        List<String> predicates = new ArrayList<>();
+        boolean cheap = searchQuery.toLowerCase().contains(CHEAP);
+        ProductSearchCriteria criteria = buildSearchCriteria(searchQuery, predicates);
+        trace.parsed(predicates, cheap, criteria);
+        List<IndexedProduct> products;
+        if (cheap) {
+            products = productSearchQueries.find(criteria, null, ProductSearchQueries.Order.PRICE, CHEAP_RESULT_LIMIT);
+        } else {
+            products = productSearchQueries.find(criteria, afterId, ProductSearchQueries.Order.ID, pageSize + 1);
         }
+        trace.executed(products.size());
+        ProductPageDTO page = toPage(products, pageSize, !cheap);
+        trace.finished();
+        return page;
+    }
+
+    /**
+     * Builds the criteria of a search from the vocabularies stored in the database. Values only match on
+     * whole tokens, as the index matches them.
+     *
+     * @param searchQuery the query
+     * @param predicates  receives the dimension of every predicate added
+     * @return the criteria
+     */
+    private ProductSearchCriteria buildSearchCriteria(String searchQuery, List<String> predicates) {
 
-        if (searchQuery.toLowerCase().contains(CHEAP)) {
-            cheap = true;
+        String searchQueryLowerCase = searchQuery.toLowerCase();
 
+        Map<String, List<String>> vocabulary = productRepository.findSearchVocabulary(toLikePattern(searchQueryLowerCase)).stream()
+                .collect(Collectors.groupingBy(ProductRepository.VocabularyTerm::getDimension,
+                        Collectors.mapping(ProductRepository.VocabularyTerm::getTerm, Collectors.toList())));
+
+        List<String> countries = QueryVocabulary.mentioned(searchQuery, vocabulary.getOrDefault(MADE_IN, List.of()));
+        countries.forEach(country -> predicates.add(MADE_IN));
+        List<String> brands = QueryVocabulary.mentioned(searchQuery, vocabulary.getOrDefault(BRAND, List.of()));
+        brands.forEach(brand -> predicates.add(BRAND));
+        List<String> categories = QueryVocabulary.mentioned(searchQuery, vocabulary.getOrDefault(CATEGORY, List.of()));
+        categories.forEach(category -> predicates.add(CATEGORY));
+        String namePattern = null;
+        if (vocabulary.containsKey(NAME)) {
+            namePattern = "%" + searchQuery + "%";
+            predicates.add(NAME);
+        }
+        PriceRange priceRange = PriceRange.parse(searchQuery);
+        if (priceRange != null) {
+            predicates.add(PRICE);
         }
-        List<Product> result;
 
-        if (spec.equals(Specification.where(null))) {
+        ProductSearchCriteria criteria = new ProductSearchCriteria(countries, brands, categories, namePattern, priceRange);
+        if (criteria.isEmpty()) {
             throw new ProductNotFoundException(STATUS_MESSAGE_NOT_FOUND);
-        } else {
-            if (cheap) {
-                result = productRepository.findAll(spec, Sort.by(Sort.Direction.ASC, PRICE)).stream().limit(10).toList();
-            } else {
-                result = productRepository.findAll(spec);
-            }
-            return result.stream().map(productMapper::toProductDTO).collect(Collectors.toList());
+        }
+        return criteria;
+    }
 
+    private Facets facets(SearchIndex searchIndex, ParsedQuery parsedQuery) {
+        return searchResultCache.get(searchIndex, parsedQuery.normalized() + "|facets",
+                () -> searchIndex.facets(parsedQuery, FACET_VALUE_LIMIT),
+                facets -> facets.brands().size() + facets.madeIns().size() + facets.categories().size() + facets.prices().size());
+    }
+
+    private static FacetsDTO toFacetsDTO(Facets facets) {
+        return new FacetsDTO(facets.total(), toCountMap(facets.brands()), toCountMap(facets.madeIns()),
+                toCountMap(facets.categories()), toCountMap(facets.prices()));
+    }
+
+    private static Map<String, Long> toCountMap(List<FacetCount> counts) {
+        Map<String, Long> countMap = new LinkedHashMap<>();
+        counts.forEach(count -> countMap.put(count.value(), count.count()));
+        return countMap;
+    }
+
+    /**
+     * Builds a LIKE pattern matching any text containing the value, escaping wildcards with {@code !}.
+     */
+    private static String toLikePattern(String value) {
+        return "%" + value.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    /**
+     * Builds a page from up to {@code pageSize + 1} rows, the extra row only telling whether a next page exists.
+     */
+    private ProductPageDTO toPage(List<IndexedProduct> rows, int pageSize, boolean resumable) {
+        boolean hasNext = resumable && rows.size() > pageSize;
+        List<IndexedProduct> page = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? encodeCursor(page.get(page.size() - 1).id()) : null;
+        return new ProductPageDTO(page.stream().map(productMapper::toProductDTO).toList(), nextCursor);
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor " + cursor);
         }
     }
 }
-
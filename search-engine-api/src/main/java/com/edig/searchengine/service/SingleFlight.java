@@ -0,0 +1,98 @@
+package com.edig.searchengine.service;
+
+import com.edig.searchengine.config.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent calls: while a call is in flight, callers asking for the same key wait for
+ * its outcome instead of repeating the work, then all get its value or its exception.
+ * <p>
+ * A call leaves the in-flight table as soon as it completes, before its waiters are released, so a caller
+ * arriving afterwards always starts a fresh call: coalescing never serves a result computed before the
+ * request arrived, unlike a cache. Callers pinned to the primary by their own recent writes only join calls
+ * also pinned to it, so they never get a value read from a lagging replica. Values are shared between the coalesced callers and must not be mutated.
+ * Calls are counted as {@code singleflight.calls}, tagged with the operation and whether they ran
+ * ({@code executed}) or waited for another ({@code coalesced}); {@code singleflight.in_flight} gauges the
+ * calls currently running.
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> executed = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalesced = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("singleflight.in_flight", inFlight, Map::size)
+                .description("Coalescable calls currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call, or waits for the identical call already in flight.
+     *
+     * @param operation the operation, which namespaces the keys and tags the metrics
+     * @param key       the normalized arguments of the call
+     * @param call      computes the value
+     * @param <T>       the value type
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String key, Supplier<T> call) {
+        Key flightKey = new Key(operation, key, ReplicaRoutingDataSource.isPinnedToPrimary());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            counter(coalesced, operation, "coalesced").increment();
+            return (T) await(existing);
+        }
+        counter(executed, operation, "executed").increment();
+        T value;
+        try {
+            value = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(flightKey, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(flightKey, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private Counter counter(Map<String, Counter> counters, String operation, String outcome) {
+        return counters.computeIfAbsent(operation, name -> Counter.builder("singleflight.calls")
+                .description("Calls to coalescable operations")
+                .tag("operation", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private record Key(String operation, String key, boolean primary) {
+    }
+}
@@ -0,0 +1,19 @@
+-- Schema previously generated by Hibernate from the Category and Product entities.
+-- Databases created that way are baselined at this version and skip it.
+
+create table if not exists category (
+    id   bigint not null auto_increment,
+    name varchar(255),
+    primary key (id)
+) engine = InnoDB;
+
+create table if not exists product (
+    id          bigint not null auto_increment,
+    brand       varchar(255),
+    made_in     varchar(255),
+    name        varchar(255),
+    price       float(23) not null,
+    category_id bigint,
+    primary key (id),
+    constraint fk_product_category foreign key (category_id) references category (id)
+) engine = InnoDB;
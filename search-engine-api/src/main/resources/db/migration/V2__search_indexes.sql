@@ -0,0 +1,35 @@
+-- Indexes serving the product lookups and the predicates built by the search Specifications.
+
+-- The tables keep the collation they were created with, so name equality, and the uniqueness below,
+-- compare names exactly as before. On MySQL 8 the default collation is case- and accent-insensitive.
+
+-- Products and categories are looked up by name on every get, update and delete, so names become unique.
+-- Names already duplicated under the column collation are made unique first: the oldest product keeps
+-- its name and the others get their id appended; the products of a duplicated category move to the
+-- oldest one and the emptied duplicates are dropped.
+update product p
+    join (select min(id) as first_id, name from product where name is not null group by name having count(*) > 1) d
+        on p.name = d.name and p.id <> d.first_id
+set p.name = concat(left(p.name, 230), ' #', p.id);
+create unique index ux_product_name on product (name);
+
+update product p
+    join category c on p.category_id = c.id
+    join (select min(id) as first_id, name from category where name is not null group by name having count(*) > 1) d
+        on c.name = d.name and c.id <> d.first_id
+set p.category_id = d.first_id;
+delete c from category c
+    join (select min(id) as first_id, name from category where name is not null group by name having count(*) > 1) d
+        on c.name = d.name and c.id <> d.first_id;
+create unique index ux_category_name on category (name);
+
+-- Single-dimension searches, optionally bounded by price ("dell 500", "cheap china").
+create index ix_product_brand_price on product (brand, price);
+create index ix_product_made_in_price on product (made_in, price);
+create index ix_product_price on product (price);
+
+-- Brand and country searched together ("samsung south korea").
+create index ix_product_brand_made_in on product (brand, made_in, price);
+
+-- Category searches ordered or bounded by price ("cheap laptops"), covering the columns of a result row.
+create index ix_product_category_price on product (category_id, price, brand, made_in, name);
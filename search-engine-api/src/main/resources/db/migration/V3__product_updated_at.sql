@@ -0,0 +1,6 @@
+-- Last modification time of every product, maintained by the database, so that a search index restored
+-- from an on-disk snapshot only has to replay the products changed after the snapshot was written.
+alter table product
+    add column updated_at datetime(6) not null default current_timestamp(6) on update current_timestamp(6);
+
+create index ix_product_updated_at on product (updated_at);
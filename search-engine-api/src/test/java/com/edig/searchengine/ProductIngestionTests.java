@@ -0,0 +1,129 @@
+package com.edig.searchengine;
+
+import com.edig.searchengine.dto.BulkIngestionResultDTO;
+import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.search.ProductChangedEvent;
+import com.edig.searchengine.search.SearchIndexService;
+import com.edig.searchengine.service.ProductIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.never;
+
+/**
+ * Runs bulk ingestions against an embedded H2 database with the unique product name index, in chunks of two.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingestion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "search.snapshot.enabled=false",
+        "ingestion.chunk-size=2"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ProductIngestionTests {
+
+    @Autowired
+    private ProductIngestionService productIngestionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private ProductRepository productRepository;
+
+    @MockBean
+    private SearchIndexService searchIndexService;
+
+    @BeforeEach
+    void createCatalog() {
+        jdbcTemplate.execute("create unique index ux_product_name on product (name)");
+        jdbcTemplate.update("insert into category (name) values ('Laptops')");
+        jdbcTemplate.update("insert into product (name, brand, made_in, price, category_id) values ('Existing Laptop', 'Dell', 'China', 900, 1)");
+    }
+
+    @Test
+    void invalidProductsAreRejected() {
+        BulkIngestionResultDTO result = productIngestionService.ingestCsv(csv(
+                "Gaming Laptop,Dell,China,1500,Laptops",
+                "No,Dell,China,1500,Laptops",
+                "Office Laptop,Dell,China,-1,Laptops",
+                "Travel Laptop,Dell,China,700,Unknown"));
+
+        assertThat(result.getAccepted()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(names()).containsExactlyInAnyOrder("Existing Laptop", "Gaming Laptop");
+    }
+
+    @Test
+    void duplicatesInThePayloadAndTheCatalogAreRejected() {
+        BulkIngestionResultDTO result = productIngestionService.ingestCsv(csv(
+                "Gaming Laptop,Dell,China,1500,Laptops",
+                "GAMING LAPTOP,Dell,China,1400,Laptops",
+                "Existing Laptop,Dell,China,800,Laptops"));
+
+        assertThat(result.getAccepted()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(names()).containsExactlyInAnyOrder("Existing Laptop", "Gaming Laptop");
+    }
+
+    @Test
+    void duplicateMissedByTheNameLookupOnlyRejectsItself() {
+        doReturn(List.of()).when(productRepository).findExistingNames(any());
+
+        BulkIngestionResultDTO result = productIngestionService.ingestCsv(csv(
+                "Gaming Laptop,Dell,China,1500,Laptops",
+                "Existing Laptop,Dell,China,800,Laptops",
+                "Office Laptop,Dell,China,600,Laptops"));
+
+        assertThat(result.getAccepted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getChunks()).extracting("accepted").containsExactly(1, 1);
+        assertThat(names()).containsExactlyInAnyOrder("Existing Laptop", "Gaming Laptop", "Office Laptop");
+        assertThat(jdbcTemplate.queryForObject("select price from product where name = 'Existing Laptop'", Float.class)).isEqualTo(900);
+    }
+
+    @Test
+    void insertedProductsAreIndexed() {
+        productIngestionService.ingestCsv(csv("Gaming Laptop,Dell,China,1500,Laptops"));
+
+        verify(searchIndexService, atLeastOnce()).onProductChanged(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void rejectedProductsAreNotIndexed() {
+        doReturn(List.of()).when(productRepository).findExistingNames(any());
+
+        productIngestionService.ingestCsv(csv("Existing Laptop,Dell,China,800,Laptops"));
+
+        verify(searchIndexService, never()).onProductChanged(any(ProductChangedEvent.class));
+    }
+
+    private List<String> names() {
+        return jdbcTemplate.queryForList("select name from product", String.class);
+    }
+
+    private static InputStream csv(String... rows) {
+        String payload = "name,brand,madeIn,price,categoryName\n" + String.join("\n", rows) + "\n";
+        return new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
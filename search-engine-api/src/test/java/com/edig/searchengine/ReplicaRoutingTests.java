@@ -0,0 +1,159 @@
+package com.edig.searchengine;
+
+import com.edig.searchengine.config.ReplicaRoutingDataSource;
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.service.ProductService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the read/write split on two embedded H2 databases standing for the primary and a replica that
+ * never receives the primary's writes, plus a replica that cannot be reached.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.connection-timeout=250",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "search.snapshot.enabled=false",
+        "database.replicas.urls=jdbc:h2:tcp://localhost:1/unreachable,"
+                + ReplicaRoutingTests.REPLICA_URL,
+        "database.replicas.health-check-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingTests {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    static void createReplica() {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("create table category (id bigint auto_increment primary key, name varchar(255))");
+        replica.execute("create table product (id bigint auto_increment primary key, brand varchar(255), " +
+                "made_in varchar(255), name varchar(255), price float not null, category_id bigint, " +
+                "updated_at timestamp(6) default current_timestamp(6) not null)");
+        replica.update("insert into category (name) values ('Electronics')");
+        replica.update("insert into product (name, brand, made_in, price, category_id) values ('replica-laptop', 'Acme', 'Japan', 900, 1)");
+    }
+
+    @BeforeEach
+    void checkReplicas() throws SQLException {
+        dataSource.unwrap(ReplicaRoutingDataSource.class).checkReplicas();
+    }
+
+    @Test
+    void unreachableReplicaIsSkipped() throws SQLException {
+        assertThat(dataSource.unwrap(ReplicaRoutingDataSource.class).getHealthyReplicas()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyMethodsReadFromReplica() {
+        assertThat(productService.listAllProducts()).extracting(ProductDTO::getName).containsExactly("replica-laptop");
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        primary.update("insert into category (name) values ('Electronics')");
+        ProductDTO product = new ProductDTO();
+        product.setName("primary-phone");
+        product.setBrand("Acme");
+        product.setMadeIn("Korea");
+        product.setPrice(500f);
+        product.setCategoryName("Electronics");
+        productService.addProduct(product);
+
+        assertThat(primary.queryForObject("select count(*) from product where name = 'primary-phone'", Integer.class)).isEqualTo(1);
+        assertThat(productService.listAllProducts()).extracting(ProductDTO::getName).doesNotContain("primary-phone");
+    }
+
+    @Test
+    void clientReadsItsOwnWritesFromPrimary() throws Exception {
+        primary.update("insert into category (name) values ('Tablets')");
+        primary.update("insert into product (name, brand, made_in, price, category_id) " +
+                "select 'primary-tablet', 'Acme', 'China', 300, id from category where name = 'Tablets'");
+
+        mockMvc.perform(get("/products/v1/list/category").param("name", "Tablets")).andExpect(status().is4xxClientError());
+
+        Cookie window = writeWindow();
+
+        mockMvc.perform(get("/products/v1/list/category").param("name", "Tablets").cookie(window)).andExpect(status().isOk());
+    }
+
+    @Test
+    void batchSearchKeepsTheClientOnReplicas() throws Exception {
+        MvcResult batch = mockMvc.perform(post("/products/v1/search/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"queries\": [{\"query\": \"acme\"}]}"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(batch.getResponse().getCookie("primary-until")).isNull();
+    }
+
+    @Test
+    void cachedReadsAreLoadedFromPrimary() throws Exception {
+        primary.update("insert into category (name) values ('Monitors')");
+        primary.update("insert into product (name, brand, made_in, price, category_id) " +
+                "select 'primary-monitor', 'Acme', 'China', 200, id from category where name = 'Monitors'");
+
+        mockMvc.perform(get("/products/v1/list/primary-monitor")).andExpect(status().isOk());
+        mockMvc.perform(get("/products/v1/list/primary-monitor").cookie(writeWindow())).andExpect(status().isOk());
+    }
+
+    @Test
+    void streamKeepsTheClientOnPrimary() throws Exception {
+        primary.update("insert into category (name) values ('Cameras')");
+        primary.update("insert into product (name, brand, made_in, price, category_id) " +
+                "select 'primary-camera', 'Acme', 'Japan', 700, id from category where name = 'Cameras'");
+
+        MvcResult replicaStream = mockMvc.perform(get("/products/v1/list/stream")).andReturn();
+        mockMvc.perform(asyncDispatch(replicaStream)).andExpect(status().isOk());
+        assertThat(replicaStream.getResponse().getContentAsString()).doesNotContain("primary-camera");
+
+        MvcResult primaryStream = mockMvc.perform(get("/products/v1/list/stream").cookie(writeWindow())).andReturn();
+        mockMvc.perform(asyncDispatch(primaryStream)).andExpect(status().isOk());
+        assertThat(primaryStream.getResponse().getContentAsString()).contains("primary-camera");
+    }
+
+    private Cookie writeWindow() throws Exception {
+        MvcResult write = mockMvc.perform(delete("/products/v1/delete/missing-product")).andReturn();
+        Cookie window = write.getResponse().getCookie("primary-until");
+        assertThat(window).isNotNull();
+        return window;
+    }
+}
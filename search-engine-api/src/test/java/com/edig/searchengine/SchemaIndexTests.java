@@ -0,0 +1,116 @@
+package com.edig.searchengine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks with EXPLAIN that the migrated schema answers the repository lookups and the search predicates
+ * through its indexes. Runs against the local MySQL database, and removes the rows it seeds; tagged so
+ * that it only runs with the mysql profile.
+ */
+@Tag("mysql")
+@SpringBootTest
+class SchemaIndexTests {
+
+    private static final String PREFIX = "explain-test-";
+    private static final int PRODUCTS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> categories = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            categories.add(new Object[]{PREFIX + "category-" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into category (name) values (?)", categories);
+        long firstCategory = jdbcTemplate.queryForObject(
+                "select min(id) from category where name like ?", Long.class, PREFIX + "%");
+
+        List<Object[]> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Object[]{PREFIX + "product-" + i, PREFIX + "brand-" + (i % 50), PREFIX + "country-" + (i % 20),
+                    (i * 7919 % 100_000) / 100f, firstCategory + i % 20});
+        }
+        jdbcTemplate.batchUpdate("insert into product (name, brand, made_in, price, category_id) values (?, ?, ?, ?, ?)", products);
+        jdbcTemplate.execute("analyze table product, category");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from product where name like ?", PREFIX + "%");
+        jdbcTemplate.update("delete from category where name like ?", PREFIX + "%");
+    }
+
+    @Test
+    void productByNameUsesUniqueIndex() {
+        Map<String, Object> plan = explain("p", "select * from product p where p.name = ?", PREFIX + "product-42");
+        assertThat(plan.get("key")).isEqualTo("ux_product_name");
+    }
+
+    @Test
+    void categoryByNameUsesUniqueIndex() {
+        Map<String, Object> plan = explain("c", "select * from category c where c.name = ?", PREFIX + "category-3");
+        assertThat(plan.get("key")).isEqualTo("ux_category_name");
+    }
+
+    @Test
+    void brandBoundedByPriceUsesBrandPriceIndex() {
+        Map<String, Object> plan = explain("p", "select * from product p where p.brand like ? and p.price <= ?",
+                PREFIX + "brand-7", 200f);
+        assertThat(plan.get("key")).isEqualTo("ix_product_brand_price");
+    }
+
+    @Test
+    void countryBoundedByPriceUsesCountryPriceIndex() {
+        Map<String, Object> plan = explain("p", "select * from product p where p.made_in like ? and p.price <= ?",
+                PREFIX + "country-7", 200f);
+        assertThat(plan.get("key")).isEqualTo("ix_product_made_in_price");
+    }
+
+    @Test
+    void brandAndCountryUseCompositeIndex() {
+        Map<String, Object> plan = explain("p", "select * from product p where p.brand like ? and p.made_in like ?",
+                PREFIX + "brand-7", PREFIX + "country-7");
+        assertThat(plan.get("key")).isEqualTo("ix_product_brand_made_in");
+    }
+
+    @Test
+    void priceBoundUsesPriceIndex() {
+        Map<String, Object> plan = explain("p", "select * from product p where p.price <= ?", 1f);
+        assertThat(plan.get("key")).isEqualTo("ix_product_price");
+    }
+
+    @Test
+    void cheapestOfCategoryIsCoveredWithoutSorting() {
+        Map<String, Object> category = explain("c", "select p.id, p.name, p.brand, p.made_in, p.price from product p "
+                + "join category c on c.id = p.category_id where c.name like ? order by p.price limit 10", PREFIX + "category-3");
+        Map<String, Object> product = explain("p", "select p.id, p.name, p.brand, p.made_in, p.price from product p "
+                + "join category c on c.id = p.category_id where c.name like ? order by p.price limit 10", PREFIX + "category-3");
+        assertThat(category.get("key")).isEqualTo("ux_category_name");
+        assertThat(product.get("key")).isEqualTo("ix_product_category_price");
+        assertThat(String.valueOf(product.get("Extra"))).contains("Using index").doesNotContain("Using filesort");
+    }
+
+    /**
+     * Gets the EXPLAIN row of one table of the query.
+     */
+    private Map<String, Object> explain(String table, String sql, Object... args) {
+        return jdbcTemplate.queryForList("explain " + sql, args).stream()
+                .filter(row -> table.equals(row.get("table")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No plan row for table " + table + " in " + sql));
+    }
+}
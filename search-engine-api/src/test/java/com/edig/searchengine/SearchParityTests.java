@@ -0,0 +1,150 @@
+package com.edig.searchengine;
+
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.dto.ProductPageDTO;
+import com.edig.searchengine.search.SearchIndexService;
+import com.edig.searchengine.search.SortOrder;
+import com.edig.searchengine.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Runs the same searches on the in-memory index and on the database fallback, over an embedded H2 catalog,
+ * and expects the same products in the same order. Only the database fallback may open a transaction.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-parity;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "search.snapshot.enabled=false"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class SearchParityTests {
+
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private SearchIndexService searchIndexService;
+
+    @SpyBean
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seed() {
+        if (jdbcTemplate.queryForObject("select count(*) from product", Integer.class) == 0) {
+            jdbcTemplate.update("insert into category (name) values ('Laptops'), ('Phones'), ('Monitors'), ('Tablets'), ('Accessories')");
+            jdbcTemplate.batchUpdate("insert into product (name, brand, made_in, price, category_id) values (?, ?, ?, ?, ?)", List.of(
+                    new Object[]{"Laptop Charger", "Dell", "China", 40f, 5},
+                    new Object[]{"Gaming Laptop", "Dell", "China", 1500f, 1},
+                    new Object[]{"Galaxy Tablet", "Samsung", "Vietnam", 400f, 4},
+                    new Object[]{"Galaxy Phone", "Samsung", "Korea", 800f, 2},
+                    new Object[]{"Office Monitor", "Dell", "Mexico", 200f, 3},
+                    new Object[]{"Budget Phone", "Nokia", "China", 90f, 2}));
+            searchIndexService.requestRebuild();
+        }
+        searchIndexService.refresh();
+        assertThat(searchIndexService.current()).hasValueSatisfying(index -> assertThat(index.size()).isEqualTo(6));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Dell", "samsung", "china", "Galaxy", "Laptop", "samsung tablets", "dell under 300",
+            "between 100 and 900", "over 500", "cheap dell", "cheap under 1000", "dell smartphones", "samsung koreans"})
+    void catalogOrderMatches(String query) {
+        assertSameNames(() -> productService.searchProducts(query, SortOrder.CATALOG, null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Dell", "china", "between 100 and 900", "over 500"})
+    void sortedTopMatches(String query) {
+        for (SortOrder order : List.of(SortOrder.CATALOG, SortOrder.PRICE, SortOrder.PRICE_DESC)) {
+            assertSameNames(() -> productService.searchProducts(query, order, 2));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Dell", "china", "under 1000", "cheap dell"})
+    void pagesMatch(String query) {
+        assertSameNames(() -> allPages(query));
+    }
+
+    @Test
+    void indexSearchesOpenNoTransaction() {
+        clearInvocations(transactionManager);
+
+        productService.searchProducts("Dell", SortOrder.PRICE, 2);
+        productService.searchProductsWithFacets("Dell", SortOrder.CATALOG, null);
+        productService.searchProductsPage("Dell", null, 2, true);
+
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void databaseFallbackReadsInAReadOnlyTransaction() {
+        doReturn(Optional.empty()).when(searchIndexService).current();
+        clearInvocations(transactionManager);
+        try {
+            productService.searchProducts("Dell", SortOrder.PRICE, 2);
+            productService.searchProductsPage("Dell", null, 2, false);
+        } finally {
+            doCallRealMethod().when(searchIndexService).current();
+        }
+
+        verify(transactionManager, times(2)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    private List<ProductDTO> allPages(String query) {
+        List<ProductDTO> products = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductPageDTO page = productService.searchProductsPage(query, cursor, 2, false);
+            products.addAll(page.getProducts());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return products;
+    }
+
+    private void assertSameNames(Supplier<List<ProductDTO>> search) {
+        List<String> fromIndex = names(search.get());
+        doReturn(Optional.empty()).when(searchIndexService).current();
+        try {
+            assertThat(names(search.get())).isEqualTo(fromIndex).isNotEmpty();
+        } finally {
+            doCallRealMethod().when(searchIndexService).current();
+        }
+    }
+
+    private static List<String> names(List<ProductDTO> products) {
+        return products.stream().map(ProductDTO::getName).toList();
+    }
+}
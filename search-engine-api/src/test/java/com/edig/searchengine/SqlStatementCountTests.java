@@ -0,0 +1,122 @@
+package com.edig.searchengine;
+
+import com.edig.searchengine.search.SearchIndexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts the exact number of SQL statements each read endpoint runs on a cold cache, over products spread
+ * across several categories, so that an N+1 select of the categories shows up as a failure. Runs on
+ * embedded H2 with the search index left unbuilt, so that searches go to the database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-count;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "search.snapshot.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.edig.searchengine.SqlStatementCounter"
+})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class SqlStatementCountTests {
+
+    private static final int CATEGORIES = 5;
+    private static final int PRODUCTS = 50;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private SearchIndexService searchIndexService;
+
+    @BeforeEach
+    void seed() {
+        when(searchIndexService.current()).thenReturn(Optional.empty());
+        List<Object[]> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(new Object[]{"Category" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into category (name) values (?)", categories);
+        List<Object[]> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Object[]{"Product " + i, "Brand" + (i % 10), "Country" + (i % 3), 10f * i, i % CATEGORIES + 1});
+        }
+        jdbcTemplate.batchUpdate("insert into product (name, brand, made_in, price, category_id) values (?, ?, ?, ?, ?)", products);
+    }
+
+    private List<String> statements(RequestBuilder request) throws Exception {
+        SqlStatementCounter.start();
+        try {
+            mockMvc.perform(request).andExpect(status().isOk());
+            return SqlStatementCounter.statements();
+        } finally {
+            SqlStatementCounter.stop();
+        }
+    }
+
+    @Test
+    void listAllRunsOneStatement() throws Exception {
+        assertThat(statements(get("/products/v1/list"))).hasSize(1);
+    }
+
+    @Test
+    void listPageRunsOneStatement() throws Exception {
+        assertThat(statements(get("/products/v1/list/page").param("size", "20"))).hasSize(1);
+    }
+
+    @Test
+    void productByNameRunsOneStatement() throws Exception {
+        assertThat(statements(get("/products/v1/list/Product 7"))).hasSize(1);
+    }
+
+    @Test
+    void productsByCategoryRunTwoStatements() throws Exception {
+        // the category, then its products
+        assertThat(statements(get("/products/v1/list/category").param("name", "Category2"))).hasSize(2);
+    }
+
+    @Test
+    void categoriesRunOneStatement() throws Exception {
+        assertThat(statements(get("/products/v1/categories"))).hasSize(1);
+    }
+
+    @Test
+    void searchRunsTwoStatements() throws Exception {
+        // the vocabulary, then the products
+        assertThat(statements(get("/products/v1/search").param("query", "brand3"))).hasSize(2);
+    }
+
+    @Test
+    void searchTopKRunsTwoStatements() throws Exception {
+        assertThat(statements(get("/products/v1/search").param("query", "brand3 under 300")
+                .param("sort", "PRICE").param("k", "3"))).hasSize(2);
+    }
+
+    @Test
+    void searchPageRunsTwoStatements() throws Exception {
+        assertThat(statements(get("/products/v1/search/page").param("query", "country1").param("size", "5"))).hasSize(2);
+    }
+}
@@ -0,0 +1,116 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.SearchEngineApplication;
+import com.edig.searchengine.search.SearchIndexService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overload test of the admission control over HTTP, with and without it.
+ * <p>
+ * 64 clients mix whole-catalog streams, product lookups and searches against a database pool of four
+ * connections, far more work than it can serve. Without admission control every request queues for a
+ * connection and the latency percentiles grow with the queue, up to the acquire and async timeouts; with it,
+ * requests over the adaptive limits get an immediate 503 and the p99 of every group stays bounded. The
+ * sample mode reports the percentiles of each group, 503s and cut responses included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AdmissionControlLoadBenchmark {
+
+    private static final int CATALOG_SIZE = 20_000;
+    private static final String[] QUERIES = {"brand7", "cheap%20brand42", "country3%20brand100", "category12%20under%20500"};
+
+    @Param({"false", "true"})
+    private boolean admissionControl;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SearchEngineApplication.class)
+                .run(BenchmarkArguments.of(
+                        "server.port=0",
+                        "server.tomcat.threads.max=512",
+                        "admission.enabled=" + admissionControl,
+                        "spring.datasource.url=jdbc:h2:mem:admission;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.hikari.maximum-pool-size=4",
+                        "spring.datasource.hikari.minimum-idle=4",
+                        "database.acquire-timeout-ms=5000",
+                        "spring.flyway.enabled=false",
+                        "search.snapshot.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN"));
+        CatalogGenerator.seed(context.getBean(JdbcTemplate.class), CATALOG_SIZE);
+        SearchIndexService searchIndexService = context.getBean(SearchIndexService.class);
+        searchIndexService.requestRebuild();
+        searchIndexService.refresh();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/products/v1";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    /**
+     * Sends a request and waits for the whole response.
+     *
+     * @return the status, or 0 when the response was cut short, as happens to overloaded streams
+     */
+    private int get(String path) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Benchmark
+    @Group("overload")
+    @GroupThreads(16)
+    public int catalog() throws InterruptedException {
+        return get("/list/stream");
+    }
+
+    @Benchmark
+    @Group("overload")
+    @GroupThreads(32)
+    public int lookup(Client clientState) throws InterruptedException {
+        return get("/list/Product%20" + clientState.random.nextInt(1, CATALOG_SIZE + 1));
+    }
+
+    @Benchmark
+    @Group("overload")
+    @GroupThreads(16)
+    public int search(Client clientState) throws InterruptedException {
+        return get("/search?query=" + QUERIES[clientState.random.nextInt(QUERIES.length)]);
+    }
+}
@@ -0,0 +1,29 @@
+package com.edig.searchengine.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Turns the benchmark settings into application arguments.
+ * <p>
+ * Settings passed to {@code SpringApplicationBuilder.properties} are defaults that {@code application.yaml}
+ * overrides, so the benchmarks would connect to the configured MySQL database instead of H2. Arguments take
+ * precedence over the yaml file; settings also given as {@code -D} system properties are left out, so that
+ * those still win.
+ */
+final class BenchmarkArguments {
+
+    private BenchmarkArguments() {}
+
+    /**
+     * Converts {@code key=value} settings into {@code --key=value} arguments.
+     *
+     * @param settings the settings
+     * @return the arguments
+     */
+    static String[] of(String... settings) {
+        return Arrays.stream(settings)
+                .filter(setting -> System.getProperty(setting.substring(0, setting.indexOf('='))) == null)
+                .map(setting -> "--" + setting)
+                .toArray(String[]::new);
+    }
+}
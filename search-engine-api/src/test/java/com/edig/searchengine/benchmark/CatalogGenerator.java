@@ -0,0 +1,58 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.search.IndexedProduct;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates reproducible synthetic catalogs for the benchmarks.
+ */
+final class CatalogGenerator {
+
+    static final int CATEGORIES = 50;
+    static final int BRANDS = 1000;
+    static final int COUNTRIES = 100;
+    private static final int INSERT_BATCH = 10_000;
+
+    private CatalogGenerator() {}
+
+    static IndexedProduct product(long id, SplittableRandom random) {
+        return new IndexedProduct(id, "Product " + id, "Brand" + random.nextInt(BRANDS), "Country" + random.nextInt(COUNTRIES),
+                random.nextInt(1, 200_000) / 100f, "Category" + random.nextInt(CATEGORIES));
+    }
+
+    static List<IndexedProduct> products(int size) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<IndexedProduct> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            products.add(product(i, random));
+        }
+        return products;
+    }
+
+    /**
+     * Inserts the categories and products in the database of a freshly created schema.
+     */
+    static void seed(JdbcTemplate jdbcTemplate, int size) {
+        List<Object[]> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(new Object[]{i + 1, "Category" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into category (id, name) values (?, ?)", categories);
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+        for (int i = 1; i <= size; i++) {
+            IndexedProduct product = product(i, random);
+            int category = Integer.parseInt(product.categoryName().substring("Category".length())) + 1;
+            rows.add(new Object[]{product.name(), product.brand(), product.madeIn(), product.price(), category});
+            if (rows.size() == INSERT_BATCH || i == size) {
+                jdbcTemplate.batchUpdate("insert into product (name, brand, made_in, price, category_id) values (?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+}
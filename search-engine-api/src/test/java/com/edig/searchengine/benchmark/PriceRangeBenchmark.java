@@ -0,0 +1,104 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.SearchEngineApplication;
+import com.edig.searchengine.entity.Product;
+import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.search.IndexedProduct;
+import com.edig.searchengine.search.PriceRange;
+import com.edig.searchengine.search.SearchIndex;
+import com.edig.searchengine.search.SearchIndexService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.edig.searchengine.constants.ProductConstants.CHEAP;
+import static com.edig.searchengine.constants.ProductConstants.CHEAP_RESULT_LIMIT;
+import static com.edig.searchengine.constants.ProductConstants.PRICE;
+
+/**
+ * Compares price range and cheapest-N queries answered by the sorted price index with the same queries
+ * run as JPA Specifications against an embedded H2 database with the schema's price index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PriceRangeBenchmark {
+
+    private static final String[] QUERIES = {
+            "between 200 and 210", "over 1995", "under $5", "1000-1010", "cheap between 500 and 1500", "cheap over 100"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private SearchIndex searchIndex;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SearchEngineApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(BenchmarkArguments.of(
+                        "spring.datasource.url=jdbc:h2:mem:price-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.flyway.enabled=false",
+                        "search.snapshot.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN"));
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        CatalogGenerator.seed(jdbcTemplate, catalogSize);
+        jdbcTemplate.execute("create index ix_product_price on product (price)");
+        SearchIndexService searchIndexService = context.getBean(SearchIndexService.class);
+        searchIndexService.requestRebuild();
+        searchIndexService.refresh();
+        searchIndex = searchIndexService.current().orElseThrow();
+        productRepository = context.getBean(ProductRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String nextQuery() {
+        return QUERIES[next++ % QUERIES.length];
+    }
+
+    @Benchmark
+    public List<IndexedProduct> priceIndex() {
+        return searchIndex.execute(searchIndex.parse(nextQuery()));
+    }
+
+    @Benchmark
+    public List<Product> specification() {
+        String query = nextQuery();
+        PriceRange range = PriceRange.parse(query);
+        Specification<Product> spec = Specification.where(null);
+        if (range.hasMin()) {
+            spec = spec.and((root, criteriaQuery, cb) -> cb.greaterThanOrEqualTo(root.get(PRICE), range.min()));
+        }
+        if (range.hasMax()) {
+            spec = spec.and((root, criteriaQuery, cb) -> cb.lessThanOrEqualTo(root.get(PRICE), range.max()));
+        }
+        if (query.contains(CHEAP)) {
+            return productRepository.findAll(spec, PageRequest.of(0, CHEAP_RESULT_LIMIT, Sort.by(Sort.Direction.ASC, PRICE))).getContent();
+        }
+        return productRepository.findAll(spec);
+    }
+}
@@ -0,0 +1,71 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.entity.Category;
+import com.edig.searchengine.entity.Product;
+import com.edig.searchengine.mapper.ProductMapper;
+import com.edig.searchengine.search.IndexedProduct;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping products to {@link ProductDTO} and serializing the resulting lists to JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMappingBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int resultSize;
+
+    private final ProductMapper productMapper = new ProductMapper(null);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Product> products;
+    private List<ProductDTO> productDTOs;
+
+    @Setup
+    public void setUp() {
+        products = new ArrayList<>(resultSize);
+        for (IndexedProduct indexedProduct : CatalogGenerator.products(resultSize)) {
+            Category category = new Category();
+            category.setName(indexedProduct.categoryName());
+            Product product = new Product();
+            product.setId(indexedProduct.id());
+            product.setName(indexedProduct.name());
+            product.setBrand(indexedProduct.brand());
+            product.setMadeIn(indexedProduct.madeIn());
+            product.setPrice(indexedProduct.price());
+            product.setCategory(category);
+            products.add(product);
+        }
+        productDTOs = map();
+    }
+
+    @Benchmark
+    public List<ProductDTO> map() {
+        List<ProductDTO> result = new ArrayList<>(products.size());
+        for (Product product : products) {
+            result.add(productMapper.toProductDTO(product));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productDTOs);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(map());
+    }
+}
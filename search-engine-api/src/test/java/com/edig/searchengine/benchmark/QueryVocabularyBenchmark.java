@@ -0,0 +1,81 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.search.IndexedProduct;
+import com.edig.searchengine.search.ParsedQuery;
+import com.edig.searchengine.search.SearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures query parsing as the brand and country vocabulary grows. Parsing runs one Aho-Corasick pass
+ * over the query, so the cost per query should stay flat from a hundred to a hundred thousand values.
+ * The scan benchmark reproduces the per-value {@code contains} loop of the database search path as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryVocabularyBenchmark {
+
+    private static final Pattern PRICE_PATTERN = Pattern.compile("\\$?\\d+");
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int vocabularySize;
+
+    private SearchIndex searchIndex;
+    private List<String> brands;
+    private List<String> countries;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<IndexedProduct> products = new ArrayList<>(vocabularySize);
+        brands = new ArrayList<>(vocabularySize);
+        countries = new ArrayList<>(vocabularySize);
+        for (int i = 0; i < vocabularySize; i++) {
+            products.add(new IndexedProduct(i, "Product " + i, "Brand" + i, "Country" + i, i % 1000, "Category" + (i % 50)));
+            brands.add("Brand" + i);
+            countries.add("Country" + i);
+        }
+        searchIndex = SearchIndex.build(products);
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            int value = (i * 7919) % vocabularySize;
+            queries[i] = "cheap brand" + value + " made in country" + value + " under $500";
+        }
+    }
+
+    @Benchmark
+    public ParsedQuery parse() {
+        String query = queries[next++ & (queries.length - 1)];
+        return searchIndex.parse(query);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        String query = queries[next++ & (queries.length - 1)];
+        String lowerCaseQuery = query.toLowerCase(Locale.ROOT);
+        for (String country : countries) {
+            if (lowerCaseQuery.contains(country.toLowerCase())) {
+                blackhole.consume(country);
+            }
+        }
+        for (String brand : brands) {
+            if (lowerCaseQuery.contains(brand.toLowerCase())) {
+                blackhole.consume(brand);
+            }
+        }
+        Matcher matcher = PRICE_PATTERN.matcher(query);
+        blackhole.consume(matcher.find());
+    }
+}
@@ -0,0 +1,96 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.SearchEngineApplication;
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.dto.ProductPageDTO;
+import com.edig.searchengine.dto.SearchResultDTO;
+import com.edig.searchengine.search.SearchIndexService;
+import com.edig.searchengine.search.SortOrder;
+import com.edig.searchengine.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the search and list service paths end to end against an embedded H2 database seeded with
+ * generated catalogs of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchEndToEndBenchmark {
+
+    private static final String[] QUERIES = {
+            "brand7", "cheap brand42", "country3 brand100", "category12 under 500", "cheap country9 category4", "product 1234"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SearchEngineApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(BenchmarkArguments.of(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.flyway.enabled=false",
+                        "search.snapshot.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN"));
+        CatalogGenerator.seed(context.getBean(JdbcTemplate.class), catalogSize);
+        SearchIndexService searchIndexService = context.getBean(SearchIndexService.class);
+        searchIndexService.requestRebuild();
+        searchIndexService.refresh();
+        productService = context.getBean(ProductService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String nextQuery() {
+        return QUERIES[next++ % QUERIES.length];
+    }
+
+    @Benchmark
+    public List<ProductDTO> search() {
+        return productService.searchProducts(nextQuery());
+    }
+
+    @Benchmark
+    public SearchResultDTO searchWithFacets() {
+        return productService.searchProductsWithFacets(nextQuery(), SortOrder.CATALOG, null);
+    }
+
+    @Benchmark
+    public List<ProductDTO> searchTopRelevant() {
+        return productService.searchProducts(nextQuery(), SortOrder.RELEVANCE, 10);
+    }
+
+    @Benchmark
+    public ProductPageDTO searchPage() {
+        return productService.searchProductsPage(nextQuery(), null, 50, false);
+    }
+
+    @Benchmark
+    public ProductPageDTO listPage() {
+        return productService.listProductsPage(null, 50);
+    }
+}
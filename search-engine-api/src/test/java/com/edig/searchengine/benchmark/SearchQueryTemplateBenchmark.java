@@ -0,0 +1,127 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.SearchEngineApplication;
+import com.edig.searchengine.entity.Product;
+import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.repository.ProductSearchCriteria;
+import com.edig.searchengine.repository.ProductSearchQueries;
+import com.edig.searchengine.search.IndexedProduct;
+import com.edig.searchengine.search.PriceRange;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.edig.searchengine.constants.ProductConstants.*;
+
+/**
+ * Compares the database search run as a chain of Specification lambdas, turned into a Criteria tree and
+ * rendered to SQL on every call, with the same search run through the precompiled JPQL templates. The
+ * catalog is small so that building the query, not reading rows, dominates; with {@code matching=false}
+ * the searched values match no product, which leaves the query building and translation alone. Each trial
+ * prints the number of distinct SQL strings the database received for the few query shapes and the many
+ * values searched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchQueryTemplateBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000;
+    private static final int QUERIES = 1024;
+
+    @Param({"true", "false"})
+    private boolean matching;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductSearchQueries productSearchQueries;
+    private final List<ProductSearchCriteria> criteria = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SearchEngineApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(BenchmarkArguments.of(
+                        "spring.datasource.url=jdbc:h2:mem:template-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.flyway.enabled=false",
+                        "search.snapshot.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SqlStringCounter.class.getName(),
+                        "logging.level.root=WARN"));
+        CatalogGenerator.seed(context.getBean(JdbcTemplate.class), CATALOG_SIZE);
+        productRepository = context.getBean(ProductRepository.class);
+        productSearchQueries = context.getBean(ProductSearchQueries.class);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < QUERIES; i++) {
+            String prefix = matching ? "" : "Missing";
+            String brand = prefix + "Brand" + random.nextInt(CatalogGenerator.BRANDS);
+            String country = prefix + "Country" + random.nextInt(CatalogGenerator.COUNTRIES);
+            String category = prefix + "Category" + random.nextInt(CatalogGenerator.CATEGORIES);
+            PriceRange price = PriceRange.atMost(random.nextInt(10, 2000));
+            criteria.add(switch (i % 4) {
+                case 0 -> new ProductSearchCriteria(List.of(), List.of(brand), List.of(), null, null);
+                case 1 -> new ProductSearchCriteria(List.of(country), List.of(brand), List.of(), null, price);
+                case 2 -> new ProductSearchCriteria(List.of(), List.of(), List.of(category), null, price);
+                default -> new ProductSearchCriteria(List.of(country), List.of(), List.of(category), null,
+                        new PriceRange(price.max() / 2, price.max()));
+            });
+        }
+        SqlStringCounter.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("Distinct SQL strings: " + SqlStringCounter.distinct());
+        context.close();
+    }
+
+    private ProductSearchCriteria nextCriteria() {
+        return criteria.get(next++ & (QUERIES - 1));
+    }
+
+    @Benchmark
+    public List<Product> specification() {
+        ProductSearchCriteria search = nextCriteria();
+        Specification<Product> spec = Specification.where(null);
+        for (String country : search.madeIns()) {
+            spec = spec.and((root, query, cb) -> cb.like(root.get(MADE_IN), country));
+        }
+        for (String brand : search.brands()) {
+            spec = spec.and((root, query, cb) -> cb.like(root.get(BRAND), brand));
+        }
+        for (String category : search.categories()) {
+            spec = spec.and((root, query, cb) -> cb.like(root.get(CATEGORY).get(NAME), category));
+        }
+        PriceRange priceRange = search.price();
+        if (priceRange != null && priceRange.hasMin()) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get(PRICE), priceRange.min()));
+        }
+        if (priceRange != null && priceRange.hasMax()) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get(PRICE), priceRange.max()));
+        }
+        return productRepository.findAll(spec, PageRequest.of(0, DEFAULT_TOP_K, Sort.by(ID))).getContent();
+    }
+
+    @Benchmark
+    public List<IndexedProduct> template() {
+        return productSearchQueries.find(nextCriteria(), null, ProductSearchQueries.Order.ID, DEFAULT_TOP_K);
+    }
+}
@@ -0,0 +1,66 @@
+package com.edig.searchengine.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Delays every statement execution, commit and rollback by a fixed round trip, so that an embedded database
+ * blocks its callers the way a database across the network does: a platform thread waits holding its
+ * connection, a virtual thread unmounts from its carrier.
+ */
+final class SimulatedDatabaseLatency {
+
+    private static final Set<String> ROUND_TRIPS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch", "commit", "rollback");
+    private static final Set<Class<?>> WRAPPED = Set.of(Connection.class, Statement.class, PreparedStatement.class,
+            CallableStatement.class);
+
+    private SimulatedDatabaseLatency() {}
+
+    /**
+     * Wraps the application data source so that every round trip to the database takes at least the latency.
+     *
+     * @param latencyMs the round trip latency, no wrapping when zero
+     * @return the initializer to add to the application
+     */
+    static ApplicationContextInitializer<ConfigurableApplicationContext> of(long latencyMs) {
+        return context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return latencyMs > 0 && bean instanceof DataSource dataSource
+                        ? wrap(dataSource, DataSource.class, latencyMs)
+                        : bean;
+            }
+        });
+    }
+
+    private static <T> T wrap(Object target, Class<T> type, long latencyMs) {
+        Class<?>[] interfaces = target instanceof AutoCloseable && !AutoCloseable.class.isAssignableFrom(type)
+                ? new Class<?>[]{type, AutoCloseable.class}
+                : new Class<?>[]{type};
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), interfaces, (proxy, method, args) -> {
+            if (ROUND_TRIPS.contains(method.getName())) {
+                Thread.sleep(latencyMs);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return result != null && WRAPPED.contains(method.getReturnType())
+                    ? wrap(result, method.getReturnType(), latencyMs)
+                    : result;
+        }));
+    }
+}
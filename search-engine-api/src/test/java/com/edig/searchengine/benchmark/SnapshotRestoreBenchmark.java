@@ -0,0 +1,57 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.search.IndexedProduct;
+import com.edig.searchengine.search.SearchIndex;
+import com.edig.searchengine.search.SearchSnapshotStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares restoring the search index from its on-disk snapshot with building it over the same catalog.
+ * The build is given the products from memory, so it leaves out the catalog scan a real rebuild also pays
+ * for and only measures the tokenizing and sorting the snapshot saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotRestoreBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int catalogSize;
+
+    private List<IndexedProduct> products;
+    private Path path;
+    private SearchSnapshotStore snapshotStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        products = CatalogGenerator.products(catalogSize);
+        path = Files.createTempFile("search-index", ".snapshot");
+        snapshotStore = new SearchSnapshotStore(true, path);
+        snapshotStore.write(SearchIndex.build(products), LocalDateTime.now());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public SearchIndex build() {
+        return SearchIndex.build(products);
+    }
+
+    @Benchmark
+    public SearchIndex restore() {
+        return snapshotStore.read().orElseThrow().index();
+    }
+}
@@ -0,0 +1,29 @@
+package com.edig.searchengine.benchmark;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate statement inspector collecting the distinct SQL strings sent to the database, registered with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class SqlStringCounter implements StatementInspector {
+
+    private static final Set<String> STATEMENTS = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    static void reset() {
+        STATEMENTS.clear();
+    }
+
+    static int distinct() {
+        return STATEMENTS.size();
+    }
+}
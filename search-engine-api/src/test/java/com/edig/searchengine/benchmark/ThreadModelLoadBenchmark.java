@@ -0,0 +1,100 @@
+package com.edig.searchengine.benchmark;
+
+import com.edig.searchengine.SearchEngineApplication;
+import com.edig.searchengine.search.SearchIndexService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test comparing the platform-thread and virtual-thread execution modes over HTTP.
+ * <p>
+ * Many concurrent clients mix database-bound list pages with index-bound searches, which hold no connection;
+ * the throughput mode gives requests per second and the sample mode gives the latency percentiles, p99
+ * included. The thread models only differ while requests block, which an in-memory database never does, so
+ * the embedded H2 database is put behind a {@link SimulatedDatabaseLatency} of {@code databaseLatencyMs} per
+ * round trip; results without it measure CPU contention, not the thread models. To measure against MySQL
+ * instead, pass {@code -Dspring.datasource.url=...} and the credentials through {@code -Djmh.jvmArgs}
+ * and {@code -p databaseLatencyMs=0}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(256)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ThreadModelLoadBenchmark {
+
+    private static final int CATALOG_SIZE = 100_000;
+    private static final String[] QUERIES = {"brand7", "cheap%20brand42", "country3%20brand100", "category12%20under%20500"};
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param("2")
+    private long databaseLatencyMs;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SearchEngineApplication.class)
+                .initializers(SimulatedDatabaseLatency.of(databaseLatencyMs))
+                .run(BenchmarkArguments.of(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.hikari.maximum-pool-size=20",
+                        "spring.flyway.enabled=false",
+                        "search.snapshot.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN"));
+        CatalogGenerator.seed(context.getBean(JdbcTemplate.class), CATALOG_SIZE);
+        SearchIndexService searchIndexService = context.getBean(SearchIndexService.class);
+        searchIndexService.requestRebuild();
+        searchIndexService.refresh();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/products/v1";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public int listPage() throws IOException, InterruptedException {
+        return get("/list/page?size=50");
+    }
+
+    @Benchmark
+    public int search(Client clientState) throws IOException, InterruptedException {
+        return get("/search?query=" + QUERIES[clientState.random.nextInt(QUERIES.length)]);
+    }
+}
@@ -0,0 +1,69 @@
+package com.edig.searchengine.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Feeds {@link AdaptiveConcurrencyLimiter} synthetic latencies, releasing every request of a fully used limit.
+ */
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long FAST = 50_000;
+    private static final long SLOW = 20_000_000;
+
+    @Test
+    void bimodalLatenciesWithoutQueueingKeepTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200);
+        Random random = new Random(42);
+
+        for (int round = 0; round < 500; round++) {
+            int admitted = fill(limiter);
+            for (int i = 0; i < admitted; i++) {
+                boolean slow = random.nextBoolean();
+                long jitter = (long) (random.nextDouble() * 0.2 * (slow ? SLOW : FAST));
+                limiter.release((slow ? SLOW : FAST) + jitter, slow ? "/search" : "/list/{name}");
+            }
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void queueingShrinksTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 200);
+
+        for (int round = 0; round < 50; round++) {
+            int admitted = fill(limiter);
+            for (int i = 0; i < admitted; i++) {
+                limiter.release(round == 0 ? FAST : FAST * (1 + admitted / 10), "/search");
+            }
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(50);
+    }
+
+    @Test
+    void unsampledReleasesLeaveTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200);
+
+        int admitted = fill(limiter);
+        for (int i = 0; i < admitted; i++) {
+            limiter.release();
+        }
+
+        assertThat(admitted).isEqualTo(20);
+        assertThat(limiter.getLimit()).isEqualTo(20);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private static int fill(AdaptiveConcurrencyLimiter limiter) {
+        int admitted = 0;
+        while (limiter.tryAcquire(1)) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
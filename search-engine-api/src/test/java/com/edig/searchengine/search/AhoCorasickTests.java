@@ -0,0 +1,88 @@
+package com.edig.searchengine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks {@link AhoCorasick} against overlapping patterns, and {@link QueryVocabulary} on whole-token matching.
+ */
+class AhoCorasickTests {
+
+    @Test
+    void findsEveryOccurrenceOfEveryPattern() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "his", "hers"));
+
+        assertThat(matches(automaton, "ushers")).containsExactly("she@1", "he@2", "hers@2");
+        assertThat(matches(automaton, "hishe")).containsExactly("his@0", "she@2", "he@3");
+    }
+
+    @Test
+    void findsPatternsThatAreSuffixesOfOthers() {
+        AhoCorasick automaton = new AhoCorasick(List.of("south korea", "korea", "a"));
+
+        assertThat(matches(automaton, "south korea")).containsExactly("south korea@0", "korea@6", "a@10");
+    }
+
+    @Test
+    void ignoresEmptyPatternsAndText() {
+        AhoCorasick automaton = new AhoCorasick(List.of("", "dell"));
+
+        assertThat(matches(automaton, "")).isEmpty();
+        assertThat(matches(automaton, "acer")).isEmpty();
+        assertThat(matches(automaton, "dell")).containsExactly("dell@0");
+    }
+
+    @Test
+    void vocabularyOnlyMatchesWholeTokensPerDimension() {
+        TermDictionary brands = dictionary("apple", "dell", "lg");
+        TermDictionary madeIns = dictionary("china", "south korea");
+        TermDictionary categories = dictionary("laptops", "phones", "apple");
+        QueryVocabulary vocabulary = QueryVocabulary.build(brands, madeIns, categories);
+
+        QueryVocabulary.Matches matches = vocabulary.match("dell laptops from south korea");
+        assertThat(matches.brands()).containsExactly("dell");
+        assertThat(matches.madeIns()).containsExactly("south korea");
+        assertThat(matches.categories()).containsExactly("laptops");
+
+        QueryVocabulary.Matches inWords = vocabulary.match("bulgaria dellphones");
+        assertThat(inWords.brands()).isEmpty();
+        assertThat(inWords.categories()).isEmpty();
+
+        QueryVocabulary.Matches shared = vocabulary.match("apple");
+        assertThat(shared.brands()).containsExactly("apple");
+        assertThat(shared.categories()).containsExactly("apple");
+        assertThat(vocabulary.size()).isEqualTo(7);
+    }
+
+    @Test
+    void valuesOutsideAVocabularyFollowTheSameRule() {
+        List<String> categories = List.of("Phones", "South Korea", "Laptops", " ");
+
+        assertThat(QueryVocabulary.mentioned("Dell smartphones", categories)).isEmpty();
+        assertThat(QueryVocabulary.mentioned("cheap PHONES from South-Korea", categories))
+                .containsExactly("Phones", "South Korea");
+        assertThat(QueryVocabulary.mentioned("laptops", categories)).containsExactly("Laptops");
+    }
+
+    private static List<String> matches(AhoCorasick automaton, String text) {
+        List<String> matches = new ArrayList<>();
+        automaton.match(text, (pattern, start, end) -> matches.add(text.substring(start, end) + "@" + start));
+        return matches;
+    }
+
+    private static TermDictionary dictionary(String... terms) {
+        Map<String, IntList> postings = new HashMap<>();
+        for (int i = 0; i < terms.length; i++) {
+            IntList ordinals = new IntList();
+            ordinals.add(i);
+            postings.put(terms[i], ordinals);
+        }
+        return TermDictionary.build(postings);
+    }
+}
@@ -0,0 +1,72 @@
+package com.edig.searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the price expressions {@link PriceRange#parse} understands; NaN stands for an open bound.
+ */
+class PriceRangeTests {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "laptops between 200 and 500     | 200    | 500",
+            "from $200 to $500               | 200    | 500",
+            "between 500 and 200             | 200    | 500",
+            "dell 500-800                    | 500    | 800",
+            "dell 500 to 800 usd             | 500    | 800",
+            "phones under 300                | NaN    | 300",
+            "below $1,299.99                 | NaN    | 1299.99",
+            "less than 40 euros              | NaN    | 40",
+            "at most £25                     | NaN    | 25",
+            "<= 99                           | NaN    | 99",
+            "over 300                        | 300    | NaN",
+            "at least 1000 dollars           | 1000   | NaN",
+            ">= 50                           | 50     | NaN",
+            "monitors 300+                   | 300    | NaN",
+            "300 and up                      | 300    | NaN",
+            "over 200 under 500              | 200    | 500",
+            "under $500 laptops at least 200 | 200    | 500",
+            "monitors 300+ up to 800         | 300    | 800",
+            "dell $500                       | NaN    | 500",
+            "cheap samsung 1,000 dollars     | NaN    | 1000",
+            "laptop price 700                | NaN    | 700",
+            "budget of $1,200                | NaN    | 1200"
+    })
+    void parsesPriceExpressions(String query, float min, float max) {
+        PriceRange range = PriceRange.parse(query);
+
+        assertThat(range).isNotNull();
+        assertThat(range.hasMin()).isEqualTo(!Float.isNaN(min));
+        assertThat(range.hasMax()).isEqualTo(!Float.isNaN(max));
+        if (range.hasMin()) {
+            assertThat(range.min()).isEqualTo(min);
+        }
+        if (range.hasMax()) {
+            assertThat(range.max()).isEqualTo(max);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"dell laptops", "samsung galaxy", "", "usb-c charger", "galaxy s24", "iphone 15 pro",
+            "dell 500", "4k monitor 27"})
+    void queriesWithoutAmountHaveNoRange(String query) {
+        assertThat(PriceRange.parse(query)).isNull();
+    }
+
+    @Test
+    void boundsAreInclusive() {
+        PriceRange range = new PriceRange(100, 200);
+
+        assertThat(range.contains(100)).isTrue();
+        assertThat(range.contains(200)).isTrue();
+        assertThat(range.contains(99.99f)).isFalse();
+        assertThat(range.contains(200.01f)).isFalse();
+        assertThat(PriceRange.atMost(50).contains(-1)).isTrue();
+        assertThat(PriceRange.atLeast(50).contains(Float.MAX_VALUE)).isTrue();
+    }
+}
@@ -0,0 +1,188 @@
+package com.edig.searchengine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks {@link SearchIndex} on a small catalog, the incrementally maintained index against one built from scratch.
+ */
+class SearchIndexTests {
+
+    private static final IndexedProduct LAPTOP = new IndexedProduct(10, "Gaming Laptop", "Dell", "China", 1500, "Laptops");
+    private static final IndexedProduct PHONE = new IndexedProduct(20, "Galaxy Phone", "Samsung", "Korea", 800, "Phones");
+    private static final IndexedProduct MONITOR = new IndexedProduct(30, "Office Monitor", "Dell", "Mexico", 200, "Monitors");
+    private static final IndexedProduct TABLET = new IndexedProduct(15, "Galaxy Tablet", "Samsung", "Vietnam", 400, "Tablets");
+    private static final IndexedProduct CHARGER = new IndexedProduct(5, "Laptop Charger", "Dell", "China", 40, "Accessories");
+
+    private static final List<String> QUERIES = List.of("dell", "samsung", "galaxy", "laptop", "china", "tablets",
+            "dell under 300", "cheap dell", "between 100 and 900");
+
+    @Test
+    void productsCommittedOutOfIdOrderAreInsertedInPlace() {
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP, PHONE, MONITOR))
+                .apply(List.of(ProductChangedEvent.upserted(TABLET), ProductChangedEvent.upserted(CHARGER)));
+
+        assertThat(index.products()).containsExactly(CHARGER, LAPTOP, TABLET, PHONE, MONITOR);
+        assertSameResults(index, SearchIndex.build(List.of(CHARGER, LAPTOP, TABLET, PHONE, MONITOR)));
+        assertThat(index.execute(index.parse("samsung"), 10, 10)).containsExactly(TABLET, PHONE);
+    }
+
+    @Test
+    void outOfOrderInsertKeepsLaterChangesConsistent() {
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP, PHONE, MONITOR))
+                .apply(List.of(ProductChangedEvent.upserted(TABLET)))
+                .apply(List.of(ProductChangedEvent.deleted(PHONE.id()), ProductChangedEvent.upserted(CHARGER)));
+
+        assertThat(index.products()).containsExactly(CHARGER, LAPTOP, TABLET, MONITOR);
+        assertSameResults(index, SearchIndex.build(List.of(CHARGER, LAPTOP, TABLET, MONITOR)));
+    }
+
+    @Test
+    void changesToTheSameProductAreMerged() {
+        IndexedProduct renamed = new IndexedProduct(TABLET.id(), "Tab Pro", "Lenovo", "China", 350, "Tablets");
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP, PHONE))
+                .apply(List.of(ProductChangedEvent.upserted(TABLET), ProductChangedEvent.upserted(renamed),
+                        ProductChangedEvent.upserted(MONITOR), ProductChangedEvent.deleted(MONITOR.id())));
+
+        assertThat(index.products()).containsExactly(LAPTOP, renamed, PHONE);
+        assertThat(index.size()).isEqualTo(3);
+        assertSameResults(index, SearchIndex.build(List.of(LAPTOP, renamed, PHONE)));
+    }
+
+    @Test
+    void updatesKeepTheirOrdinal() {
+        IndexedProduct cheaper = new IndexedProduct(PHONE.id(), PHONE.name(), PHONE.brand(), PHONE.madeIn(), 100, PHONE.categoryName());
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP, PHONE, MONITOR))
+                .apply(List.of(ProductChangedEvent.upserted(cheaper)));
+
+        assertThat(index.products()).containsExactly(LAPTOP, cheaper, MONITOR);
+        assertSameResults(index, SearchIndex.build(List.of(LAPTOP, cheaper, MONITOR)));
+    }
+
+    @Test
+    void filtersAreIntersected() {
+        SearchIndex index = catalog();
+
+        assertThat(execute(index, "dell")).containsExactly(CHARGER, LAPTOP, MONITOR);
+        assertThat(execute(index, "dell china")).containsExactly(CHARGER, LAPTOP);
+        assertThat(execute(index, "samsung tablets")).containsExactly(TABLET);
+        assertThat(execute(index, "samsung mexico")).isEmpty();
+        assertThat(execute(index, "acme")).isEmpty();
+    }
+
+    @Test
+    void priceRangeFiltersAloneOrWithOtherFilters() {
+        SearchIndex index = catalog();
+
+        assertThat(execute(index, "dell under 300")).containsExactly(CHARGER, MONITOR);
+        assertThat(execute(index, "between 100 and 900")).containsExactly(TABLET, PHONE, MONITOR);
+        assertThat(execute(index, "over 5000")).isEmpty();
+    }
+
+    @Test
+    void nameIsMatchedAsASubstring() {
+        SearchIndex index = catalog();
+
+        assertThat(execute(index, "galaxy")).containsExactly(TABLET, PHONE);
+        assertThat(execute(index, "laptop")).containsExactly(CHARGER, LAPTOP);
+        assertThat(execute(index, "ga")).containsExactly(LAPTOP, TABLET, PHONE);
+        assertThat(execute(index, "top charg")).containsExactly(CHARGER);
+        assertThat(index.parse("galaxy laptop").name()).isNull();
+    }
+
+    @Test
+    void windowStartsAfterTheGivenId() {
+        SearchIndex index = catalog();
+        ParsedQuery dell = index.parse("dell");
+
+        assertThat(index.execute(dell, Long.MIN_VALUE, 2)).containsExactly(CHARGER, LAPTOP);
+        assertThat(index.execute(dell, LAPTOP.id(), 2)).containsExactly(MONITOR);
+        assertThat(index.execute(dell, 7, 10)).containsExactly(LAPTOP, MONITOR);
+        assertThat(index.execute(dell, MONITOR.id(), 10)).isEmpty();
+        assertThat(index.execute(index.parse("under 1000"), TABLET.id(), 1)).containsExactly(PHONE);
+    }
+
+    @Test
+    void cheapReturnsTheCheapestWhateverTheWindow() {
+        SearchIndex index = catalog();
+
+        assertThat(index.execute(index.parse("cheap dell"), MONITOR.id(), 1)).containsExactly(CHARGER, MONITOR, LAPTOP);
+        assertThat(index.execute(index.parse("cheap under 500"), MONITOR.id(), 1)).containsExactly(CHARGER, MONITOR, TABLET);
+    }
+
+    @Test
+    void topKeepsTheBestInOrder() {
+        SearchIndex index = catalog();
+        ParsedQuery dell = index.parse("dell");
+        ParsedQuery underThousand = index.parse("under 1000");
+
+        assertThat(index.top(dell, SortOrder.CATALOG, 2)).containsExactly(CHARGER, LAPTOP);
+        assertThat(index.top(dell, SortOrder.PRICE, 2)).containsExactly(CHARGER, MONITOR);
+        assertThat(index.top(dell, SortOrder.PRICE_DESC, 2)).containsExactly(LAPTOP, MONITOR);
+        assertThat(index.top(underThousand, SortOrder.PRICE, 2)).containsExactly(CHARGER, MONITOR);
+        assertThat(index.top(underThousand, SortOrder.PRICE_DESC, 2)).containsExactly(PHONE, TABLET);
+        assertThat(index.top(index.parse("acme"), SortOrder.PRICE, 2)).isEmpty();
+    }
+
+    @Test
+    void relevanceRanksProductsMatchingMoreQueryTermsFirst() {
+        SearchIndex index = catalog();
+
+        assertThat(index.top(index.parse("samsung galaxy tablet"), SortOrder.RELEVANCE, 2)).containsExactly(TABLET, PHONE);
+        assertThat(index.top(index.parse("samsung galaxy phone"), SortOrder.RELEVANCE, 1)).containsExactly(PHONE);
+    }
+
+    @Test
+    void facetsCountEveryMatch() {
+        SearchIndex index = catalog();
+        Facets facets = index.facets(index.parse("cheap dell"), 10);
+
+        assertThat(facets.total()).isEqualTo(3);
+        assertThat(facets.brands()).containsExactly(new FacetCount("Dell", 3));
+        assertThat(facets.madeIns()).containsExactly(new FacetCount("China", 2), new FacetCount("Mexico", 1));
+        assertThat(facets.categories()).extracting(FacetCount::value)
+                .containsExactlyInAnyOrder("Accessories", "Laptops", "Monitors");
+        assertThat(facets.prices()).extracting(FacetCount::count).containsOnly(1L);
+        assertThat(facets.prices().stream().mapToLong(FacetCount::count).sum()).isEqualTo(3);
+
+        assertThat(index.facets(index.parse("dell under 300"), 10).madeIns())
+                .containsExactlyInAnyOrder(new FacetCount("China", 1), new FacetCount("Mexico", 1));
+        assertThat(index.facets(index.parse("acme"), 10).total()).isZero();
+    }
+
+    @Test
+    void suggestionsAreRankedByCount() {
+        SearchIndex index = catalog();
+
+        assertThat(index.suggest("d", 5)).containsExactly(new Suggestion("Dell", "brand", 3));
+        assertThat(index.suggest("ga", 5)).containsExactly(new Suggestion("Galaxy Phone", "name", 1),
+                new Suggestion("Galaxy Tablet", "name", 1), new Suggestion("Gaming Laptop", "name", 1));
+        assertThat(index.suggest("ga", 1)).containsExactly(new Suggestion("Galaxy Phone", "name", 1));
+        assertThat(index.suggest("  ", 5)).isEmpty();
+    }
+
+    private static SearchIndex catalog() {
+        return SearchIndex.build(List.of(CHARGER, LAPTOP, TABLET, PHONE, MONITOR));
+    }
+
+    private static List<IndexedProduct> execute(SearchIndex index, String query) {
+        return index.execute(index.parse(query));
+    }
+
+    private static void assertSameResults(SearchIndex actual, SearchIndex expected) {
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (String query : QUERIES) {
+            ParsedQuery parsed = expected.parse(query);
+            assertThat(actual.parse(query)).as(query).isEqualTo(parsed);
+            assertThat(actual.execute(parsed)).as(query).isEqualTo(expected.execute(parsed));
+            for (SortOrder order : SortOrder.values()) {
+                assertThat(actual.top(parsed, order, 3)).as(query + " " + order).isEqualTo(expected.top(parsed, order, 3));
+            }
+            assertThat(actual.facets(parsed, 10)).as(query).isEqualTo(expected.facets(parsed, 10));
+        }
+        assertThat(actual.suggest("ga", 5)).isEqualTo(expected.suggest("ga", 5));
+    }
+}
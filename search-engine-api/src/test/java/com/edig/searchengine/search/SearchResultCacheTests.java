@@ -0,0 +1,70 @@
+package com.edig.searchengine.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link SearchResultCache} only serves a result on the index version it was computed on.
+ */
+class SearchResultCacheTests {
+
+    private static final IndexedProduct LAPTOP = new IndexedProduct(1, "Gaming Laptop", "Dell", "China", 1500, "Laptops");
+    private static final IndexedProduct PHONE = new IndexedProduct(2, "Galaxy Phone", "Samsung", "Korea", 800, "Phones");
+
+    private final SearchResultCache cache = new SearchResultCache(new SimpleMeterRegistry(), 1000);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void resultIsServedOnTheSameVersion() {
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP));
+
+        assertThat(get(index, "dell")).isEqualTo("dell@" + index.version());
+        assertThat(get(index, "dell")).isEqualTo("dell@" + index.version());
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void anyChangeInvalidatesEveryEntry() {
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP));
+        get(index, "dell");
+        get(index, "china");
+
+        SearchIndex changed = index.apply(List.of(ProductChangedEvent.upserted(PHONE)));
+        assertThat(changed.version()).isGreaterThan(index.version());
+
+        assertThat(get(changed, "dell")).isEqualTo("dell@" + changed.version());
+        assertThat(get(changed, "china")).isEqualTo("china@" + changed.version());
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void keysAreCachedApart() {
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP));
+
+        assertThat(get(index, "dell")).startsWith("dell");
+        assertThat(get(index, "china")).startsWith("china");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void olderIndexDoesNotGetANewerResult() {
+        SearchIndex index = SearchIndex.build(List.of(LAPTOP));
+        SearchIndex changed = index.apply(List.of(ProductChangedEvent.upserted(PHONE)));
+        get(changed, "dell");
+
+        assertThat(get(index, "dell")).isEqualTo("dell@" + index.version());
+        assertThat(loads).hasValue(2);
+    }
+
+    private String get(SearchIndex index, String key) {
+        return cache.get(index, key, () -> {
+            loads.incrementAndGet();
+            return key + "@" + index.version();
+        }, String::length);
+    }
+}
@@ -0,0 +1,166 @@
+package com.edig.searchengine.search;
+
+import com.edig.searchengine.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Writes snapshots to a temporary directory and reads them back, intact, truncated or corrupt.
+ */
+class SearchSnapshotStoreTests {
+
+    private static final LocalDateTime HIGH_WATER_MARK = LocalDateTime.of(2024, 5, 17, 10, 30, 15, 123_456_000);
+    private static final List<IndexedProduct> PRODUCTS = List.of(
+            new IndexedProduct(3, "Café Crème Machine", "Delonghi", "Italy", 249.99f, "Kitchen"),
+            new IndexedProduct(7, null, "Delonghi", null, 0, "Kitchen"),
+            new IndexedProduct(42, "Gaming Laptop", "Dell", "China", 1500, null),
+            new IndexedProduct(43, "", null, "China", 12.5f, "Accessories"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotRoundTrips() throws IOException {
+        SearchSnapshotStore store = new SearchSnapshotStore(true, directory.resolve("index.snapshot"));
+
+        store.write(SearchIndex.build(PRODUCTS), HIGH_WATER_MARK);
+
+        SearchSnapshotStore.Snapshot snapshot = store.read().orElseThrow();
+        assertThat(snapshot.index().products()).isEqualTo(PRODUCTS);
+        assertThat(snapshot.highWaterMark()).isEqualTo(HIGH_WATER_MARK);
+    }
+
+    @Test
+    void emptyIndexRoundTrips() throws IOException {
+        SearchSnapshotStore store = new SearchSnapshotStore(true, directory.resolve("index.snapshot"));
+
+        store.write(SearchIndex.build(List.of()), HIGH_WATER_MARK);
+
+        assertThat(store.read().orElseThrow().index().products()).isEmpty();
+    }
+
+    @Test
+    void restoredIndexAnswersLikeABuiltOne() throws IOException {
+        SearchSnapshotStore store = new SearchSnapshotStore(true, directory.resolve("index.snapshot"));
+        SearchIndex built = SearchIndex.build(PRODUCTS);
+
+        store.write(built, HIGH_WATER_MARK);
+
+        assertSameAnswers(store.read().orElseThrow().index(), built);
+    }
+
+    @Test
+    void snapshotOfAChangedIndexRestoresDenseOrdinals() throws IOException {
+        SearchSnapshotStore store = new SearchSnapshotStore(true, directory.resolve("index.snapshot"));
+        IndexedProduct inserted = new IndexedProduct(5, "Espresso Machine", "Delonghi", "Italy", 99, "Kitchen");
+        SearchIndex changed = SearchIndex.build(PRODUCTS).apply(List.of(
+                ProductChangedEvent.deleted(7), ProductChangedEvent.deleted(42), ProductChangedEvent.upserted(inserted)));
+
+        store.write(changed, HIGH_WATER_MARK);
+
+        SearchIndex restored = store.read().orElseThrow().index();
+        assertThat(restored.products()).isEqualTo(changed.products());
+        assertSameAnswers(restored, SearchIndex.build(changed.products()));
+    }
+
+    private static void assertSameAnswers(SearchIndex actual, SearchIndex expected) {
+        for (String query : List.of("delonghi", "kitchen", "made in china", "machine", "laptop under 2000",
+                "cheap accessories", "creme", "italy over 50")) {
+            ParsedQuery parsed = expected.parse(query);
+            assertThat(actual.parse(query)).as(query).isEqualTo(parsed);
+            assertThat(actual.execute(parsed)).as(query).isEqualTo(expected.execute(parsed));
+            for (SortOrder order : SortOrder.values()) {
+                assertThat(actual.top(parsed, order, 10)).as("%s by %s", query, order).isEqualTo(expected.top(parsed, order, 10));
+            }
+            assertThat(actual.facets(parsed, 10)).as(query).isEqualTo(expected.facets(parsed, 10));
+        }
+        for (String prefix : List.of("de", "ca", "gam", "ch", "ki")) {
+            assertThat(actual.suggest(prefix, 10)).as(prefix).isEqualTo(expected.suggest(prefix, 10));
+        }
+    }
+
+    @Test
+    void truncatedSnapshotIsIgnored() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        SearchSnapshotStore store = new SearchSnapshotStore(true, path);
+        store.write(SearchIndex.build(PRODUCTS), HIGH_WATER_MARK);
+        byte[] bytes = Files.readAllBytes(path);
+
+        for (int length : new int[]{0, 3, 20, bytes.length / 2, bytes.length - 5, bytes.length - 1}) {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            assertThat(store.read()).as("%d of %d bytes", length, bytes.length).isEmpty();
+        }
+    }
+
+    @Test
+    void corruptSnapshotIsIgnored() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        SearchSnapshotStore store = new SearchSnapshotStore(true, path);
+        store.write(SearchIndex.build(PRODUCTS), HIGH_WATER_MARK);
+        byte[] bytes = Files.readAllBytes(path);
+
+        byte[] otherVersion = bytes.clone();
+        ByteBuffer.wrap(otherVersion).putInt(Integer.BYTES, 99);
+        Files.write(path, otherVersion);
+        assertThat(store.read()).isEmpty();
+
+        byte[] hugeCount = bytes.clone();
+        ByteBuffer.wrap(hugeCount).putInt(5 * Integer.BYTES, Integer.MAX_VALUE);
+        Files.write(path, hugeCount);
+        assertThat(store.read()).isEmpty();
+
+        Files.writeString(path, "not a snapshot at all");
+        assertThat(store.read()).isEmpty();
+    }
+
+    @Test
+    void disabledStoreReadsNothing() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        new SearchSnapshotStore(true, path).write(SearchIndex.build(PRODUCTS), HIGH_WATER_MARK);
+
+        assertThat(new SearchSnapshotStore(false, path).read()).isEmpty();
+    }
+
+    @Test
+    void corruptSnapshotFallsBackToRebuild() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        Files.writeString(path, "not a snapshot at all");
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.streamIndexedProducts()).thenReturn(PRODUCTS.stream());
+        SearchIndexService service = new SearchIndexService(productRepository, mock(PlatformTransactionManager.class),
+                new SearchSnapshotStore(true, path), 100, 100, 0);
+
+        service.refresh();
+
+        assertThat(service.current()).get().extracting(SearchIndex::products).isEqualTo(PRODUCTS);
+    }
+
+    @Test
+    void snapshotIsRestoredWithoutRebuild() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        new SearchSnapshotStore(true, path).write(SearchIndex.build(PRODUCTS), HIGH_WATER_MARK);
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.streamIds()).thenReturn(PRODUCTS.stream().map(IndexedProduct::id));
+        when(productRepository.streamIndexedProductsUpdatedAfter(HIGH_WATER_MARK)).thenReturn(Stream.empty());
+        SearchIndexService service = new SearchIndexService(productRepository, mock(PlatformTransactionManager.class),
+                new SearchSnapshotStore(true, path), 100, 100, 0);
+
+        service.refresh();
+
+        assertThat(service.current()).get().extracting(SearchIndex::products).isEqualTo(PRODUCTS);
+    }
+}
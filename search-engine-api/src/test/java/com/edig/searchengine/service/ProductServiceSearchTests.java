@@ -0,0 +1,107 @@
+package com.edig.searchengine.service;
+
+import com.edig.searchengine.dto.ProductDTO;
+import com.edig.searchengine.mapper.ProductMapper;
+import com.edig.searchengine.repository.CategoryRepository;
+import com.edig.searchengine.repository.ProductRepository;
+import com.edig.searchengine.repository.ProductSearchCriteria;
+import com.edig.searchengine.repository.ProductSearchQueries;
+import com.edig.searchengine.search.IndexedProduct;
+import com.edig.searchengine.search.SearchIndex;
+import com.edig.searchengine.search.SearchIndexService;
+import com.edig.searchengine.search.SearchMetrics;
+import com.edig.searchengine.search.SearchResultCache;
+import com.edig.searchengine.search.SortOrder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the searches of {@link ProductService}, index-served with their result cache, and what the
+ * database fallback reports to its trace.
+ */
+class ProductServiceSearchTests {
+
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        SearchIndex searchIndex = SearchIndex.build(List.of(
+                new IndexedProduct(1, "Gaming Laptop X1", "Dell", "China", 1500, "Laptops"),
+                new IndexedProduct(2, "Office Laptop X2", "Dell", "China", 900, "Laptops"),
+                new IndexedProduct(3, "Office Chair", "Ikea", "Sweden", 150, "Furniture")));
+        SearchIndexService searchIndexService = mock(SearchIndexService.class);
+        when(searchIndexService.current()).thenReturn(Optional.of(searchIndex));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        productService = new ProductService(mock(ProductRepository.class), mock(CategoryRepository.class),
+                new ProductMapper(mock(CategoryRepository.class)), searchIndexService,
+                new SearchMetrics(meterRegistry, 100), new SearchResultCache(meterRegistry, 1000), null, null,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void relevanceRankingIsNotSharedBetweenQueriesWithTheSameFilters() {
+        List<String> gaming = names(productService.searchProducts("dell gaming", SortOrder.RELEVANCE, 2));
+        List<String> office = names(productService.searchProducts("dell office", SortOrder.RELEVANCE, 2));
+
+        assertThat(gaming).containsExactly("Gaming Laptop X1", "Office Laptop X2");
+        assertThat(office).containsExactly("Office Laptop X2", "Gaming Laptop X1");
+    }
+
+    @Test
+    void sameQueryIsServedTheSameRanking() {
+        List<String> first = names(productService.searchProducts("Dell  office", SortOrder.RELEVANCE, 2));
+        List<String> second = names(productService.searchProducts("office dell", SortOrder.RELEVANCE, 2));
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void databaseFallbackTracesItsCriteria() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        List<ProductRepository.VocabularyTerm> vocabulary = List.of(term("brand", "Dell"), term("madeIn", "China"));
+        when(productRepository.findSearchVocabulary(anyString())).thenReturn(vocabulary);
+        ProductSearchQueries productSearchQueries = mock(ProductSearchQueries.class);
+        when(productSearchQueries.find(any(), any(), any(), any())).thenReturn(List.of());
+        SearchIndexService searchIndexService = mock(SearchIndexService.class);
+        when(searchIndexService.current()).thenReturn(Optional.empty());
+        SearchMetrics searchMetrics = mock(SearchMetrics.class);
+        SearchMetrics.SearchTrace trace = mock(SearchMetrics.SearchTrace.class);
+        when(searchMetrics.start(anyString(), anyString())).thenReturn(trace);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductService databaseService = new ProductService(productRepository, mock(CategoryRepository.class),
+                new ProductMapper(mock(CategoryRepository.class)), searchIndexService, searchMetrics,
+                new SearchResultCache(meterRegistry, 1000), null, productSearchQueries,
+                mock(PlatformTransactionManager.class));
+
+        databaseService.searchProducts("cheap dell", SortOrder.CATALOG, null);
+        databaseService.searchProductsPage("dell from china", null, 10, false);
+
+        verify(trace).parsed(List.of("brand"), true,
+                new ProductSearchCriteria(List.of(), List.of("Dell"), List.of(), null, null));
+        verify(trace).parsed(List.of("madeIn", "brand"), false,
+                new ProductSearchCriteria(List.of("China"), List.of("Dell"), List.of(), null, null));
+    }
+
+    private static ProductRepository.VocabularyTerm term(String dimension, String term) {
+        ProductRepository.VocabularyTerm vocabularyTerm = mock(ProductRepository.VocabularyTerm.class);
+        when(vocabularyTerm.getDimension()).thenReturn(dimension);
+        when(vocabularyTerm.getTerm()).thenReturn(term);
+        return vocabularyTerm;
+    }
+
+    private static List<String> names(List<ProductDTO> products) {
+        return products.stream().map(ProductDTO::getName).toList();
+    }
+}
@@ -0,0 +1,142 @@
+package com.edig.searchengine.service;
+
+import com.edig.searchengine.config.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that {@link SingleFlight} coalesces concurrent identical calls, and only them.
+ */
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalCallsRunOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> singleFlight.execute("search", "dell", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "result";
+        }));
+        awaitInFlight(1);
+
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 1; i < CALLERS; i++) {
+            waiters.add(executor.submit(() -> singleFlight.execute("search", "dell", () -> {
+                calls.incrementAndGet();
+                return "other";
+            })));
+        }
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        for (Future<String> waiter : waiters) {
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.get("singleflight.in_flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void differentKeysAndOperationsRunApart() {
+        assertThat(singleFlight.execute("search", "dell", () -> "dell")).isEqualTo("dell");
+        assertThat(singleFlight.execute("search", "acer", () -> "acer")).isEqualTo("acer");
+        assertThat(singleFlight.execute("suggest", "dell", () -> "suggest")).isEqualTo("suggest");
+    }
+
+    @Test
+    void callsPinnedToThePrimaryDoNotJoinReplicaCalls() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> replicaRead = executor.submit(() -> singleFlight.execute("search", "dell", () -> {
+            await(release);
+            return "replica";
+        }));
+        awaitInFlight(1);
+
+        Future<String> primaryRead = executor.submit(() -> ReplicaRoutingDataSource.readFromPrimary(
+                () -> singleFlight.execute("search", "dell", () -> "primary")));
+
+        assertThat(primaryRead.get(5, TimeUnit.SECONDS)).isEqualTo("primary");
+        release.countDown();
+        assertThat(replicaRead.get(5, TimeUnit.SECONDS)).isEqualTo("replica");
+        assertThat(coalesced()).isZero();
+    }
+
+    @Test
+    void laterCallsStartAfresh() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("search", "dell", calls::incrementAndGet);
+        singleFlight.execute("search", "dell", calls::incrementAndGet);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndIsNotKept() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> first = executor.submit(() -> singleFlight.execute("search", "dell", () -> {
+            await(release);
+            throw new IllegalStateException("database down");
+        }));
+        awaitInFlight(1);
+        Future<Object> waiter = executor.submit(() -> singleFlight.execute("search", "dell", () -> "other"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.execute("search", "dell", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    private void awaitInFlight(int calls) throws InterruptedException {
+        for (int i = 0; i < 500 && meterRegistry.get("singleflight.in_flight").gauge().value() < calls; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitCoalesced(int calls) throws InterruptedException {
+        for (int i = 0; i < 500 && coalesced() < calls; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(coalesced()).isEqualTo(calls);
+    }
+
+    private double coalesced() {
+        return meterRegistry.find("singleflight.calls").tag("outcome", "coalesced").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}